@@ -1,5 +1,7 @@
 package com.stevebrecher;
 
+import java.nio.LongBuffer;
+
 /**
  * Non-instantiable class containing a variety of static poker hand evaluation and related utility methods.
  * <p>
@@ -591,6 +593,198 @@ public final class HandEval {
 	    return 0; /* never reached, but avoids compiler warning */
 	}
 
+	/*
+	 * Batch evaluation.  Each batch method evaluates count hands, taken from
+	 * consecutive elements of an array or buffer, into consecutive elements of
+	 * out.  Nothing is allocated.  The loops are unrolled by four so that the
+	 * table lookups of independent hands can overlap.
+	 */
+
+	private static void checkBatch(int length, int offset, int count, int outLength, int outOffset) {
+		if (offset < 0 || count < 0 || offset > length - count || outOffset < 0 || outOffset > outLength - count)
+			throw new IndexOutOfBoundsException();
+	}
+
+	/**
+	 * Evaluates an array of 7-card hands with {@link #hand7Eval}.
+	 * @param hands bit masks with one bit set for each of 7 cards.
+	 * @param out receives the value of hands[i] in out[i]; at least as long as hands.
+	 */
+	public static void hand7EvalBatch(long[] hands, int[] out) {
+		hand7EvalBatch(hands, 0, hands.length, out, 0);
+	}
+
+	/**
+	 * Evaluates a slice of an array of 7-card hands with {@link #hand7Eval}.
+	 * @param hands bit masks with one bit set for each of 7 cards.
+	 * @param offset index in hands of the first hand to evaluate.
+	 * @param count number of hands to evaluate.
+	 * @param out receives the values of the hands.
+	 * @param outOffset index in out of the value of the first hand.
+	 */
+	public static void hand7EvalBatch(long[] hands, int offset, int count, int[] out, int outOffset) {
+		checkBatch(hands.length, offset, count, out.length, outOffset);
+		int i = 0;
+		for (; i < count - 3; i += 4) {
+			final int v0 = hand7Eval(hands[offset + i]);
+			final int v1 = hand7Eval(hands[offset + i + 1]);
+			final int v2 = hand7Eval(hands[offset + i + 2]);
+			final int v3 = hand7Eval(hands[offset + i + 3]);
+			out[outOffset + i] = v0;
+			out[outOffset + i + 1] = v1;
+			out[outOffset + i + 2] = v2;
+			out[outOffset + i + 3] = v3;
+		}
+		for (; i < count; ++i)
+			out[outOffset + i] = hand7Eval(hands[offset + i]);
+	}
+
+	/**
+	 * Evaluates a slice of a buffer of 7-card hands with {@link #hand7Eval}.  The
+	 * buffer is read with absolute gets; its position is not changed.
+	 * @param hands bit masks with one bit set for each of 7 cards.
+	 * @param index buffer index of the first hand to evaluate.
+	 * @param count number of hands to evaluate.
+	 * @param out receives the values of the hands.
+	 * @param outOffset index in out of the value of the first hand.
+	 */
+	public static void hand7EvalBatch(LongBuffer hands, int index, int count, int[] out, int outOffset) {
+		checkBatch(hands.limit(), index, count, out.length, outOffset);
+		int i = 0;
+		for (; i < count - 3; i += 4) {
+			final int v0 = hand7Eval(hands.get(index + i));
+			final int v1 = hand7Eval(hands.get(index + i + 1));
+			final int v2 = hand7Eval(hands.get(index + i + 2));
+			final int v3 = hand7Eval(hands.get(index + i + 3));
+			out[outOffset + i] = v0;
+			out[outOffset + i + 1] = v1;
+			out[outOffset + i + 2] = v2;
+			out[outOffset + i + 3] = v3;
+		}
+		for (; i < count; ++i)
+			out[outOffset + i] = hand7Eval(hands.get(index + i));
+	}
+
+	/**
+	 * Evaluates an array of 6-card hands with {@link #hand6Eval}.
+	 * @param hands bit masks with one bit set for each of 6 cards.
+	 * @param out receives the value of hands[i] in out[i]; at least as long as hands.
+	 */
+	public static void hand6EvalBatch(long[] hands, int[] out) {
+		hand6EvalBatch(hands, 0, hands.length, out, 0);
+	}
+
+	/**
+	 * Evaluates a slice of an array of 6-card hands with {@link #hand6Eval}.
+	 * @param hands bit masks with one bit set for each of 6 cards.
+	 * @param offset index in hands of the first hand to evaluate.
+	 * @param count number of hands to evaluate.
+	 * @param out receives the values of the hands.
+	 * @param outOffset index in out of the value of the first hand.
+	 */
+	public static void hand6EvalBatch(long[] hands, int offset, int count, int[] out, int outOffset) {
+		checkBatch(hands.length, offset, count, out.length, outOffset);
+		int i = 0;
+		for (; i < count - 3; i += 4) {
+			final int v0 = hand6Eval(hands[offset + i]);
+			final int v1 = hand6Eval(hands[offset + i + 1]);
+			final int v2 = hand6Eval(hands[offset + i + 2]);
+			final int v3 = hand6Eval(hands[offset + i + 3]);
+			out[outOffset + i] = v0;
+			out[outOffset + i + 1] = v1;
+			out[outOffset + i + 2] = v2;
+			out[outOffset + i + 3] = v3;
+		}
+		for (; i < count; ++i)
+			out[outOffset + i] = hand6Eval(hands[offset + i]);
+	}
+
+	/**
+	 * Evaluates a slice of a buffer of 6-card hands with {@link #hand6Eval}.  The
+	 * buffer is read with absolute gets; its position is not changed.
+	 * @param hands bit masks with one bit set for each of 6 cards.
+	 * @param index buffer index of the first hand to evaluate.
+	 * @param count number of hands to evaluate.
+	 * @param out receives the values of the hands.
+	 * @param outOffset index in out of the value of the first hand.
+	 */
+	public static void hand6EvalBatch(LongBuffer hands, int index, int count, int[] out, int outOffset) {
+		checkBatch(hands.limit(), index, count, out.length, outOffset);
+		int i = 0;
+		for (; i < count - 3; i += 4) {
+			final int v0 = hand6Eval(hands.get(index + i));
+			final int v1 = hand6Eval(hands.get(index + i + 1));
+			final int v2 = hand6Eval(hands.get(index + i + 2));
+			final int v3 = hand6Eval(hands.get(index + i + 3));
+			out[outOffset + i] = v0;
+			out[outOffset + i + 1] = v1;
+			out[outOffset + i + 2] = v2;
+			out[outOffset + i + 3] = v3;
+		}
+		for (; i < count; ++i)
+			out[outOffset + i] = hand6Eval(hands.get(index + i));
+	}
+
+	/**
+	 * Evaluates an array of 5-card hands with {@link #hand5Eval}.
+	 * @param hands bit masks with one bit set for each of 5 cards.
+	 * @param out receives the value of hands[i] in out[i]; at least as long as hands.
+	 */
+	public static void hand5EvalBatch(long[] hands, int[] out) {
+		hand5EvalBatch(hands, 0, hands.length, out, 0);
+	}
+
+	/**
+	 * Evaluates a slice of an array of 5-card hands with {@link #hand5Eval}.
+	 * @param hands bit masks with one bit set for each of 5 cards.
+	 * @param offset index in hands of the first hand to evaluate.
+	 * @param count number of hands to evaluate.
+	 * @param out receives the values of the hands.
+	 * @param outOffset index in out of the value of the first hand.
+	 */
+	public static void hand5EvalBatch(long[] hands, int offset, int count, int[] out, int outOffset) {
+		checkBatch(hands.length, offset, count, out.length, outOffset);
+		int i = 0;
+		for (; i < count - 3; i += 4) {
+			final int v0 = hand5Eval(hands[offset + i]);
+			final int v1 = hand5Eval(hands[offset + i + 1]);
+			final int v2 = hand5Eval(hands[offset + i + 2]);
+			final int v3 = hand5Eval(hands[offset + i + 3]);
+			out[outOffset + i] = v0;
+			out[outOffset + i + 1] = v1;
+			out[outOffset + i + 2] = v2;
+			out[outOffset + i + 3] = v3;
+		}
+		for (; i < count; ++i)
+			out[outOffset + i] = hand5Eval(hands[offset + i]);
+	}
+
+	/**
+	 * Evaluates a slice of a buffer of 5-card hands with {@link #hand5Eval}.  The
+	 * buffer is read with absolute gets; its position is not changed.
+	 * @param hands bit masks with one bit set for each of 5 cards.
+	 * @param index buffer index of the first hand to evaluate.
+	 * @param count number of hands to evaluate.
+	 * @param out receives the values of the hands.
+	 * @param outOffset index in out of the value of the first hand.
+	 */
+	public static void hand5EvalBatch(LongBuffer hands, int index, int count, int[] out, int outOffset) {
+		checkBatch(hands.limit(), index, count, out.length, outOffset);
+		int i = 0;
+		for (; i < count - 3; i += 4) {
+			final int v0 = hand5Eval(hands.get(index + i));
+			final int v1 = hand5Eval(hands.get(index + i + 1));
+			final int v2 = hand5Eval(hands.get(index + i + 2));
+			final int v3 = hand5Eval(hands.get(index + i + 3));
+			out[outOffset + i] = v0;
+			out[outOffset + i + 1] = v1;
+			out[outOffset + i + 2] = v2;
+			out[outOffset + i + 3] = v3;
+		}
+		for (; i < count; ++i)
+			out[outOffset + i] = hand5Eval(hands.get(index + i));
+	}
+
 	/**
 	 * Returns the Deuce-to-Seven low (Kansas City lowball) value of a 5-card poker hand.
 	 * @param hand bit mask with one bit set for each of 5 cards.
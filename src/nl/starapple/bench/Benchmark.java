@@ -0,0 +1,44 @@
+package nl.starapple.bench;
+
+/**
+ * A single micro benchmark: a piece of work that is executed repeatedly by the {@link BenchmarkRunner}. Each call of
+ * {@link #run()} performs {@link #getOperations()} operations and returns a value that depends on all of their
+ * results, so that the JIT cannot remove the work as dead code.
+ */
+public abstract class Benchmark
+{
+	private String name;
+	private String input;
+
+	/**
+	 * @param name : the name of the measured operation, for example "hand7Eval"
+	 * @param input : a short description of the input the operation is measured on
+	 */
+	public Benchmark(String name, String input)
+	{
+		this.name = name;
+		this.input = input;
+	}
+
+	public String getName()
+	{
+		return name;
+	}
+
+	public String getInput()
+	{
+		return input;
+	}
+
+
+	/**
+	 * Returns the number of operations performed by one call of {@link #run()}.
+	 */
+	public abstract int getOperations();
+
+
+	/**
+	 * Performs the measured operations once and returns a value that depends on their results.
+	 */
+	public abstract long run();
+}
@@ -0,0 +1,115 @@
+package nl.starapple.bench;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Runs {@link Benchmark}s on the calling thread and reports the average time per operation and the number of bytes
+ * allocated per operation. Every benchmark is first run for a warmup period, so that the measured code is compiled by
+ * the JIT, and is then measured over a number of timed iterations.
+ */
+public class BenchmarkRunner
+{
+	private final long warmupNanos;
+	private final long iterationNanos;
+	private final int iterations;
+	private final PrintStream out;
+
+	// Keeps the results of the benchmarks reachable, so that the JIT cannot drop the measured work.
+	public static volatile long blackhole;
+
+	/**
+	 * @param warmupMillis : how long each benchmark is run before it is measured
+	 * @param iterationMillis : the minimal duration of one measured iteration
+	 * @param iterations : the number of measured iterations
+	 * @param out : the stream the results are printed to
+	 */
+	public BenchmarkRunner(long warmupMillis, long iterationMillis, int iterations, PrintStream out)
+	{
+		this.warmupNanos = warmupMillis * 1000000l;
+		this.iterationNanos = iterationMillis * 1000000l;
+		this.iterations = iterations;
+		this.out = out;
+	}
+
+
+	/**
+	 * Prints the header of the result table.
+	 */
+	public void printHeader()
+	{
+		out.printf("%-22s %-16s %12s %12s %12s %12s%n", "Benchmark", "Input", "ns/op", "error", "B/op", "MB/s alloc");
+	}
+
+
+	/**
+	 * Warms up and measures the given benchmark, then prints one line of results. Returns the average number of
+	 * nanoseconds per operation.
+	 * @param benchmark : the benchmark to run
+	 */
+	public double run(Benchmark benchmark)
+	{
+		long sink = 0;
+		long warmupEnd = System.nanoTime() + warmupNanos;
+		while(System.nanoTime() < warmupEnd)
+			sink ^= benchmark.run();
+
+		double[] nanosPerOp = new double[iterations];
+		long totalOps = 0;
+		long totalNanos = 0;
+		long allocatedStart = allocatedBytes();
+		for(int i = 0; i < iterations; i++)
+		{
+			long ops = 0;
+			long start = System.nanoTime();
+			long elapsed;
+			do
+			{
+				sink ^= benchmark.run();
+				ops += benchmark.getOperations();
+				elapsed = System.nanoTime() - start;
+			}
+			while(elapsed < iterationNanos);
+			nanosPerOp[i] = (double) elapsed / ops;
+			totalOps += ops;
+			totalNanos += elapsed;
+		}
+		long allocated = allocatedBytes() - allocatedStart;
+		blackhole ^= sink;
+
+		double mean = (double) totalNanos / totalOps;
+		double variance = 0;
+		for(int i = 0; i < iterations; i++)
+			variance += (nanosPerOp[i] - mean) * (nanosPerOp[i] - mean);
+		double error = iterations > 1 ? Math.sqrt(variance / (iterations - 1)) : 0;
+
+		if(allocated >= 0)
+		{
+			double bytesPerOp = (double) allocated / totalOps;
+			double allocationRate = allocated / (totalNanos / 1e9) / (1024 * 1024);
+			out.printf("%-22s %-16s %12.3f %12.3f %12.3f %12.3f%n", benchmark.getName(), benchmark.getInput(), mean,
+					   error, bytesPerOp, allocationRate);
+		}
+		else
+			out.printf("%-22s %-16s %12.3f %12.3f %12s %12s%n", benchmark.getName(), benchmark.getInput(), mean, error,
+					   "n/a", "n/a");
+		return mean;
+	}
+
+
+	/**
+	 * Returns the number of bytes allocated by the current thread so far, or -1 when the JVM cannot tell.
+	 */
+	private static long allocatedBytes()
+	{
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if(threads instanceof com.sun.management.ThreadMXBean)
+		{
+			com.sun.management.ThreadMXBean sunThreads = (com.sun.management.ThreadMXBean) threads;
+			if(sunThreads.isThreadAllocatedMemorySupported() && sunThreads.isThreadAllocatedMemoryEnabled())
+				return sunThreads.getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+		return -1;
+	}
+}
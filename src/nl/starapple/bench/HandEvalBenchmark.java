@@ -0,0 +1,310 @@
+package nl.starapple.bench;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import nl.starapple.eval.LookupEval;
+
+import com.stevebrecher.HandEval;
+
+/**
+ * Measures the evaluation methods of {@link HandEval} on random hands, on flush-heavy hands and on hands with quads,
+ * full house and trips rank patterns. Prints the time and the allocation per evaluated hand. The 7-card evaluator of
+ * {@link LookupEval} is measured on the same hands, for comparison with {@link HandEval#hand7Eval(long)}, and the
+ * batch methods of HandEval are measured on the random hands, for comparison with the scalar methods.
+ * <p>
+ * Usage: <code>HandEvalBenchmark [warmupMillis] [iterationMillis] [iterations]</code>
+ */
+public class HandEvalBenchmark
+{
+	private static final int SAMPLE_SIZE = 1 << 16;
+	private static final long SEED = 20101016l;
+
+	/**
+	 * Base class for the benchmarks of this class, which evaluate every hand of a fixed array once per run.
+	 */
+	private static abstract class EvalBenchmark extends Benchmark
+	{
+		protected final long[] hands;
+
+		public EvalBenchmark(String name, String input, long[] hands)
+		{
+			super(name, input);
+			this.hands = hands;
+		}
+
+		@Override
+		public int getOperations()
+		{
+			return hands.length;
+		}
+	}
+
+
+	public static void main(String[] args)
+	{
+		long warmupMillis = args.length > 0 ? Long.parseLong(args[0]) : 2000l;
+		long iterationMillis = args.length > 1 ? Long.parseLong(args[1]) : 1000l;
+		int iterations = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+		BenchmarkRunner runner = new BenchmarkRunner(warmupMillis, iterationMillis, iterations, System.out);
+		runner.printHeader();
+		for(Benchmark benchmark : createBenchmarks())
+			runner.run(benchmark);
+	}
+
+
+	/**
+	 * Returns all benchmarks of the HandEval evaluators.
+	 */
+	public static List<Benchmark> createBenchmarks()
+	{
+		List<Benchmark> benchmarks = new ArrayList<Benchmark>();
+		for(int cards = 5; cards <= 7; cards++)
+		{
+			String[] inputs = {"random", "flush-heavy", "quads/boat"};
+			long[][] samples = {
+				HandSamples.random(SAMPLE_SIZE, cards, SEED),
+				HandSamples.flushHeavy(SAMPLE_SIZE, cards, SEED),
+				HandSamples.paired(SAMPLE_SIZE, cards, SEED)
+			};
+			for(int i = 0; i < samples.length; i++)
+			{
+				String input = cards + "c " + inputs[i];
+				if(cards == 5)
+				{
+					benchmarks.add(hand5Eval(input, samples[i]));
+					if(i == 0)
+						benchmarks.add(hand5EvalBatch(input, samples[i]));
+					benchmarks.add(hand2to7LoEval(input, samples[i]));
+					benchmarks.add(handAto5LoEval(input, samples[i]));
+				}
+				else if(cards == 6)
+				{
+					benchmarks.add(hand6Eval(input, samples[i]));
+					if(i == 0)
+						benchmarks.add(hand6EvalBatch(input, samples[i]));
+				}
+				else
+				{
+					benchmarks.add(hand7Eval(input, samples[i]));
+					benchmarks.add(lookupHand7Eval(input, samples[i]));
+					if(i == 0)
+					{
+						benchmarks.add(hand7EvalBatch(input, samples[i]));
+						benchmarks.add(hand7EvalBatchBuffer(input, samples[i]));
+						benchmarks.add(lookupHand7EvalBatch(input, samples[i]));
+					}
+					benchmarks.add(handRazzEval(input, samples[i]));
+					benchmarks.add(hand8LowEval(input, samples[i]));
+				}
+			}
+		}
+		return benchmarks;
+	}
+
+
+	/*
+	 * Each evaluator gets its own benchmark class, so that the call in the measured loop stays monomorphic and can be
+	 * inlined by the JIT.
+	 */
+
+	private static Benchmark hand5Eval(String input, long[] hands)
+	{
+		return new EvalBenchmark("hand5Eval", input, hands)
+		{
+			@Override
+			public long run()
+			{
+				long sink = 0;
+				for(int i = 0; i < hands.length; i++)
+					sink += HandEval.hand5Eval(hands[i]);
+				return sink;
+			}
+		};
+	}
+
+	private static Benchmark hand6Eval(String input, long[] hands)
+	{
+		return new EvalBenchmark("hand6Eval", input, hands)
+		{
+			@Override
+			public long run()
+			{
+				long sink = 0;
+				for(int i = 0; i < hands.length; i++)
+					sink += HandEval.hand6Eval(hands[i]);
+				return sink;
+			}
+		};
+	}
+
+	private static Benchmark hand7Eval(String input, long[] hands)
+	{
+		return new EvalBenchmark("hand7Eval", input, hands)
+		{
+			@Override
+			public long run()
+			{
+				long sink = 0;
+				for(int i = 0; i < hands.length; i++)
+					sink += HandEval.hand7Eval(hands[i]);
+				return sink;
+			}
+		};
+	}
+
+	private static Benchmark lookupHand7Eval(String input, long[] hands)
+	{
+		LookupEval.hand7Eval(hands[0]);	// build the tables before the warmup starts
+		return new EvalBenchmark("LookupEval.hand7Eval", input, hands)
+		{
+			@Override
+			public long run()
+			{
+				long sink = 0;
+				for(int i = 0; i < hands.length; i++)
+					sink += LookupEval.hand7Eval(hands[i]);
+				return sink;
+			}
+		};
+	}
+
+	private static Benchmark hand5EvalBatch(String input, long[] hands)
+	{
+		final int[] values = new int[hands.length];
+		return new EvalBenchmark("hand5EvalBatch", input, hands)
+		{
+			@Override
+			public long run()
+			{
+				HandEval.hand5EvalBatch(hands, values);
+				return values[values.length - 1];
+			}
+		};
+	}
+
+	private static Benchmark hand6EvalBatch(String input, long[] hands)
+	{
+		final int[] values = new int[hands.length];
+		return new EvalBenchmark("hand6EvalBatch", input, hands)
+		{
+			@Override
+			public long run()
+			{
+				HandEval.hand6EvalBatch(hands, values);
+				return values[values.length - 1];
+			}
+		};
+	}
+
+	private static Benchmark hand7EvalBatch(String input, long[] hands)
+	{
+		final int[] values = new int[hands.length];
+		return new EvalBenchmark("hand7EvalBatch", input, hands)
+		{
+			@Override
+			public long run()
+			{
+				HandEval.hand7EvalBatch(hands, values);
+				return values[values.length - 1];
+			}
+		};
+	}
+
+	private static Benchmark hand7EvalBatchBuffer(String input, long[] hands)
+	{
+		final int[] values = new int[hands.length];
+		final LongBuffer buffer = ByteBuffer.allocateDirect(hands.length * 8).order(ByteOrder.nativeOrder())
+											.asLongBuffer();
+		buffer.put(hands);
+		return new EvalBenchmark("hand7EvalBatch(buf)", input, hands)
+		{
+			@Override
+			public long run()
+			{
+				HandEval.hand7EvalBatch(buffer, 0, values.length, values, 0);
+				return values[values.length - 1];
+			}
+		};
+	}
+
+	private static Benchmark lookupHand7EvalBatch(String input, long[] hands)
+	{
+		final int[] values = new int[hands.length];
+		return new EvalBenchmark("LookupEval.batch", input, hands)
+		{
+			@Override
+			public long run()
+			{
+				LookupEval.hand7EvalBatch(hands, 0, hands.length, values, 0);
+				return values[values.length - 1];
+			}
+		};
+	}
+
+	private static Benchmark hand2to7LoEval(String input, long[] hands)
+	{
+		return new EvalBenchmark("hand2to7LoEval", input, hands)
+		{
+			@Override
+			public long run()
+			{
+				long sink = 0;
+				for(int i = 0; i < hands.length; i++)
+					sink += HandEval.hand2to7LoEval(hands[i]);
+				return sink;
+			}
+		};
+	}
+
+	private static Benchmark handAto5LoEval(String input, long[] hands)
+	{
+		return new EvalBenchmark("handAto5LoEval", input, hands)
+		{
+			@Override
+			public long run()
+			{
+				long sink = 0;
+				for(int i = 0; i < hands.length; i++)
+					sink += HandEval.handAto5LoEval(hands[i]);
+				return sink;
+			}
+		};
+	}
+
+	private static Benchmark handRazzEval(String input, long[] hands)
+	{
+		return new EvalBenchmark("handRazzEval", input, hands)
+		{
+			@Override
+			public long run()
+			{
+				long sink = 0;
+				for(int i = 0; i < hands.length; i++)
+					sink += HandEval.handRazzEval(hands[i]);
+				return sink;
+			}
+		};
+	}
+
+	// Omaha8LowEval is commented out in HandEval (it needs the CardSet class, which is not part of this project), so
+	// the 8-or-better low evaluation is measured through hand8LowEval, which it is built on.
+	private static Benchmark hand8LowEval(String input, long[] hands)
+	{
+		return new EvalBenchmark("hand8LowEval", input, hands)
+		{
+			@Override
+			public long run()
+			{
+				long sink = 0;
+				for(int i = 0; i < hands.length; i++)
+					sink += HandEval.hand8LowEval(hands[i]);
+				return sink;
+			}
+		};
+	}
+}
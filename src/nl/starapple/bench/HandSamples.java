@@ -0,0 +1,137 @@
+package nl.starapple.bench;
+
+import java.util.Random;
+
+/**
+ * Generates arrays of hands in the encoding used by {@link com.stevebrecher.HandEval}, one bit per card at position
+ * 16 * suit + rank. Every generator is seeded, so that repeated benchmark runs evaluate exactly the same hands.
+ */
+public class HandSamples
+{
+	/* Rank multiplicities of the paired hands, per number of cards. */
+	private static final int[][][] PAIRED_PATTERNS = {
+		/* 5 cards */ { {4, 1}, {3, 2} },
+		/* 6 cards */ { {4, 2}, {3, 3}, {4, 1, 1}, {3, 2, 1} },
+		/* 7 cards */ { {4, 3}, {4, 2, 1}, {3, 3, 1}, {3, 2, 2}, {4, 1, 1, 1}, {3, 2, 1, 1} }
+	};
+
+	private HandSamples() {}
+
+
+	/**
+	 * Returns the encoding of the card with the given rank (0 is a deuce, 12 an ace) and suit (0 to 3).
+	 */
+	public static long card(int rank, int suit)
+	{
+		return 1l << (16 * suit + rank);
+	}
+
+
+	/**
+	 * Returns hands of uniformly random distinct cards.
+	 * @param count : the number of hands
+	 * @param cards : the number of cards per hand
+	 * @param seed : the seed of the random generator
+	 */
+	public static long[] random(int count, int cards, long seed)
+	{
+		Random random = new Random(seed);
+		long[] hands = new long[count];
+		for(int i = 0; i < count; i++)
+			hands[i] = addRandomCards(0l, cards, random);
+		return hands;
+	}
+
+
+	/**
+	 * Returns hands in which at least four cards share one suit, so that most of them contain a flush and the
+	 * evaluators spend their time in the flush and straight flush paths.
+	 * @param count : the number of hands
+	 * @param cards : the number of cards per hand
+	 * @param seed : the seed of the random generator
+	 */
+	public static long[] flushHeavy(int count, int cards, long seed)
+	{
+		Random random = new Random(seed);
+		long[] hands = new long[count];
+		for(int i = 0; i < count; i++)
+		{
+			int suit = random.nextInt(4);
+			int suited = 4 + random.nextInt(cards - 3);
+			long hand = 0l;
+			int n = 0;
+			while(n < suited)
+			{
+				long card = card(random.nextInt(13), suit);
+				if((hand & card) == 0)
+				{
+					hand |= card;
+					n++;
+				}
+			}
+			hands[i] = addRandomCards(hand, cards - suited, random);
+		}
+		return hands;
+	}
+
+
+	/**
+	 * Returns hands with quads, full house and trips rank patterns, the cases that take the deepest branches of the
+	 * rank-count based evaluators.
+	 * @param count : the number of hands
+	 * @param cards : the number of cards per hand, 5 to 7
+	 * @param seed : the seed of the random generator
+	 */
+	public static long[] paired(int count, int cards, long seed)
+	{
+		Random random = new Random(seed);
+		int[][] patterns = PAIRED_PATTERNS[cards - 5];
+		long[] hands = new long[count];
+		for(int i = 0; i < count; i++)
+		{
+			int[] pattern = patterns[random.nextInt(patterns.length)];
+			int usedRanks = 0;
+			long hand = 0l;
+			for(int j = 0; j < pattern.length; j++)
+			{
+				int rank;
+				do
+					rank = random.nextInt(13);
+				while((usedRanks & (1 << rank)) != 0);
+				usedRanks |= 1 << rank;
+
+				int n = 0;
+				while(n < pattern[j])
+				{
+					long card = card(rank, random.nextInt(4));
+					if((hand & card) == 0)
+					{
+						hand |= card;
+						n++;
+					}
+				}
+			}
+			hands[i] = hand;
+		}
+		return hands;
+	}
+
+
+	/**
+	 * Adds the given number of random cards to a hand, skipping cards that are already in it.
+	 */
+	private static long addRandomCards(long hand, int cards, Random random)
+	{
+		int n = 0;
+		while(n < cards)
+		{
+			long card = card(random.nextInt(13), random.nextInt(4));
+			if((hand & card) == 0)
+			{
+				hand |= card;
+				n++;
+			}
+		}
+		return hand;
+	}
+}
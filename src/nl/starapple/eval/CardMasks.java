@@ -0,0 +1,88 @@
+package nl.starapple.eval;
+
+import java.util.Collection;
+
+import nl.starapple.poker.Card;
+import nl.starapple.poker.Hand;
+
+/**
+ * Helpers for building the HandEval encoding of cards, as returned by {@link Card#getNumber()}.
+ */
+final class CardMasks
+{
+	private CardMasks() {}	// no instances
+
+	/** The encoding of each card, indexed by the card number 0 to 51 used by {@link Card}. */
+	static final long[] CARD = new long[52];
+
+	static
+	{
+		for(int i = 0; i < 52; i++)
+			CARD[i] = Card.getCard(i).getNumber();
+	}
+
+
+	/**
+	 * Returns the card number 0 to 51 of the single card in the given mask.
+	 */
+	static int index(long cardMask)
+	{
+		int bit = Long.numberOfTrailingZeros(cardMask);
+		return (bit >>> 4) * 13 + (bit & 0xF);
+	}
+
+
+	/**
+	 * Returns the combined encoding of the given cards; an empty mask for null.
+	 */
+	static long of(Card[] cards)
+	{
+		long mask = 0l;
+		if(cards != null)
+			for(Card card : cards)
+				mask |= card.getNumber();
+		return mask;
+	}
+
+
+	/**
+	 * Returns the combined encoding of the two cards of the given hand.
+	 */
+	static long of(Hand hand)
+	{
+		return hand.getCard1().getNumber() | hand.getCard2().getNumber();
+	}
+
+
+	/**
+	 * Returns the encodings of the given hands that share no card with the given dead cards.
+	 */
+	static long[] liveCombos(Collection<Hand> hands, long dead)
+	{
+		long[] combos = new long[hands.size()];
+		int n = 0;
+		for(Hand hand : hands)
+		{
+			long combo = of(hand);
+			if((combo & dead) == 0)
+				combos[n++] = combo;
+		}
+		long[] live = new long[n];
+		System.arraycopy(combos, 0, live, 0, n);
+		return live;
+	}
+
+
+	/**
+	 * Returns the encodings of all cards that are not in the given dead cards, in card number order.
+	 */
+	static long[] liveCards(long dead)
+	{
+		long[] cards = new long[52 - Long.bitCount(dead)];
+		int n = 0;
+		for(int i = 0; i < 52; i++)
+			if((CARD[i] & dead) == 0)
+				cards[n++] = CARD[i];
+		return cards;
+	}
+}
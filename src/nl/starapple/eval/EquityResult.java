@@ -0,0 +1,74 @@
+package nl.starapple.eval;
+
+/**
+ * The outcome of an equity calculation: how many of the evaluated showdowns the hero won, tied and lost.
+ */
+public class EquityResult
+{
+	private final long wins;
+	private final long ties;
+	private final long losses;
+
+	public EquityResult(long wins, long ties, long losses)
+	{
+		this.wins = wins;
+		this.ties = ties;
+		this.losses = losses;
+	}
+
+
+	/**
+	 * Returns a result that holds the showdowns of both this result and the given one.
+	 */
+	public EquityResult add(EquityResult other)
+	{
+		return new EquityResult(wins + other.wins, ties + other.ties, losses + other.losses);
+	}
+
+	public long getWins()
+	{
+		return wins;
+	}
+
+	public long getTies()
+	{
+		return ties;
+	}
+
+	public long getLosses()
+	{
+		return losses;
+	}
+
+	/**
+	 * Returns the number of evaluated showdowns.
+	 */
+	public long getTotal()
+	{
+		return wins + ties + losses;
+	}
+
+
+	/**
+	 * Returns the share of the pot the hero gets on average, counting a tie as half a win, or 0 when no showdowns were
+	 * evaluated.
+	 */
+	public double getEquity()
+	{
+		long total = getTotal();
+		return total == 0 ? 0 : (wins + ties / 2.0) / total;
+	}
+
+
+	/**
+	 * Returns a String representation of this result.
+	 */
+	public String toString()
+	{
+		long total = getTotal();
+		if(total == 0)
+			return "no showdowns";
+		return String.format("equity %.4f (win %.4f, tie %.4f, lose %.4f, %d showdowns)", getEquity(),
+							 (double) wins / total, (double) ties / total, (double) losses / total, total);
+	}
+}
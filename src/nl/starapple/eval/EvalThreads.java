@@ -0,0 +1,105 @@
+package nl.starapple.eval;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Holds the thread pool shared by the parallel equity calculations. The pool has one daemon thread per available
+ * processor and is created when it is first used. Tasks running on the pool must not wait for other tasks of the
+ * pool.
+ */
+public final class EvalThreads
+{
+	private EvalThreads() {}	// no instances
+
+	private static final int PARALLELISM = Runtime.getRuntime().availableProcessors();
+
+	private static ExecutorService executor;
+
+	/**
+	 * Returns the number of threads of the shared pool.
+	 */
+	public static int getParallelism()
+	{
+		return PARALLELISM;
+	}
+
+
+	/**
+	 * Returns the shared pool.
+	 */
+	public static synchronized ExecutorService getExecutor()
+	{
+		if(executor == null)
+		{
+			final AtomicInteger threadNumber = new AtomicInteger();
+			executor = Executors.newFixedThreadPool(PARALLELISM, new ThreadFactory()
+			{
+				@Override
+				public Thread newThread(Runnable task)
+				{
+					Thread thread = new Thread(task, "eval-" + threadNumber.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return executor;
+	}
+
+
+	/**
+	 * Runs the given tasks on the given executor and returns the sum of their results. Propagates the failure of a
+	 * task as an IllegalStateException; when interrupted, cancels the tasks and returns the sum of the finished ones.
+	 */
+	static EquityResult sum(ExecutorService executor, List<Callable<EquityResult>> tasks)
+	{
+		EquityResult result = new EquityResult(0, 0, 0);
+		for(EquityResult taskResult : run(executor, tasks))
+			result = result.add(taskResult);
+		return result;
+	}
+
+
+	/**
+	 * Runs the given tasks on the given executor and returns their results in the order of the tasks. Propagates the
+	 * failure of a task as an IllegalStateException; when interrupted, cancels the tasks and returns the results of
+	 * the tasks that finished before the first unfinished one.
+	 */
+	static <T> List<T> run(ExecutorService executor, List<? extends Callable<T>> tasks)
+	{
+		List<Future<T>> futures = new ArrayList<Future<T>>(tasks.size());
+		for(Callable<T> task : tasks)
+			futures.add(executor.submit(task));
+
+		List<T> results = new ArrayList<T>(futures.size());
+		for(Future<T> future : futures)
+		{
+			try
+			{
+				results.add(future.get());
+			}
+			catch(InterruptedException e)
+			{
+				for(Future<T> pending : futures)
+					pending.cancel(true);
+				Thread.currentThread().interrupt();
+				break;
+			}
+			catch(ExecutionException e)
+			{
+				for(Future<T> pending : futures)
+					pending.cancel(true);
+				throw new IllegalStateException("Equity calculation failed", e.getCause());
+			}
+		}
+		return results;
+	}
+}
@@ -0,0 +1,38 @@
+package nl.starapple.eval;
+
+import com.stevebrecher.HandEval;
+
+/**
+ * The available 7-card high evaluators. All of them take hands in the encoding of {@link HandEval} and return
+ * identical values, so they can be swapped freely by the engine and by bots.
+ */
+public enum Evaluator
+{
+	/** The switch based evaluator {@link HandEval#hand7Eval(long)}, which needs no tables to be built. */
+	BRECHER
+	{
+		@Override
+		public int hand7Eval(long hand)
+		{
+			return HandEval.hand7Eval(hand);
+		}
+	},
+
+	/** The perfect hash lookup evaluator {@link LookupEval#hand7Eval(long)}. */
+	LOOKUP
+	{
+		@Override
+		public int hand7Eval(long hand)
+		{
+			return LookupEval.hand7Eval(hand);
+		}
+	};
+
+
+	/**
+	 * Returns the value of the best 5-card high poker hand from 7 cards.
+	 * @param hand bit mask with one bit set for each of 7 cards.
+	 * @return the value of the best 5-card high poker hand.
+	 */
+	public abstract int hand7Eval(long hand);
+}
@@ -0,0 +1,152 @@
+package nl.starapple.eval;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+
+import nl.starapple.poker.Card;
+import nl.starapple.poker.Hand;
+
+/**
+ * Calculates the exact heads-up equity of a hand against another hand or a range of hands by enumerating every
+ * possible completion of the board: 990 turn and river runouts on the flop, 1,712,304 boards preflop.
+ * <p>
+ * The board space is split on the first dealt card: every task enumerates the boards whose lowest new card is one
+ * given card, so there are about 45 tasks per opposing hand, which keeps all threads of the executor busy. Each board
+ * is built once as a mask and evaluated together with the cards of both players.
+ */
+public class ExactEquity
+{
+	private final Evaluator evaluator;
+	private final ExecutorService executor;
+
+	/**
+	 * Creates an enumerator that uses {@link Evaluator#BRECHER} and the shared pool of {@link EvalThreads}.
+	 */
+	public ExactEquity()
+	{
+		this(Evaluator.BRECHER, EvalThreads.getExecutor());
+	}
+
+
+	/**
+	 * @param evaluator : the evaluator for the showdowns
+	 * @param executor : the executor the enumeration tasks are run on
+	 */
+	public ExactEquity(Evaluator evaluator, ExecutorService executor)
+	{
+		this.evaluator = evaluator;
+		this.executor = executor;
+	}
+
+
+	/**
+	 * Returns the outcome of all completions of the board for a hand against another hand.
+	 * @param hero : the hand to calculate the equity of
+	 * @param villain : the opposing hand
+	 * @param board : the zero to five cards on the table, may be null
+	 */
+	public EquityResult compute(Hand hero, Hand villain, Card[] board)
+	{
+		return compute(hero, Collections.singletonList(villain), board);
+	}
+
+
+	/**
+	 * Returns the outcome of all completions of the board for a hand against every hand of a range. Hands of the range
+	 * that share a card with the hero or the board are left out.
+	 * @param hero : the hand to calculate the equity of
+	 * @param villainRange : the possible opposing hands
+	 * @param board : the zero to five cards on the table, may be null
+	 */
+	public EquityResult compute(Hand hero, Collection<Hand> villainRange, Card[] board)
+	{
+		long heroMask = CardMasks.of(hero);
+		long boardMask = CardMasks.of(board);
+		long[] villainCombos = CardMasks.liveCombos(villainRange, heroMask | boardMask);
+		return compute(heroMask, villainCombos, boardMask);
+	}
+
+
+	/**
+	 * Returns the outcome of all completions of the board for a hand against each of the given hands, all given in
+	 * the HandEval encoding. The hands must not share cards with the hero or the board.
+	 */
+	EquityResult compute(long heroMask, long[] villainCombos, long boardMask)
+	{
+		int missingCards = 5 - Long.bitCount(boardMask);
+		List<Callable<EquityResult>> tasks = new ArrayList<Callable<EquityResult>>();
+		for(long villain : villainCombos)
+		{
+			long[] liveCards = CardMasks.liveCards(heroMask | villain | boardMask);
+			if(missingCards == 0)
+				tasks.add(new EnumerationTask(evaluator, heroMask, villain, boardMask, liveCards, -1, 0));
+			else
+				for(int first = 0; first <= liveCards.length - missingCards; first++)
+					tasks.add(new EnumerationTask(evaluator, heroMask, villain, boardMask, liveCards, first,
+												  missingCards - 1));
+		}
+		return EvalThreads.sum(executor, tasks);
+	}
+
+
+	/**
+	 * Enumerates all boards that contain a given first card and further cards of higher index.
+	 */
+	private static class EnumerationTask implements Callable<EquityResult>
+	{
+		private final Evaluator evaluator;
+		private final long heroMask, villainMask, boardMask;
+		private final long[] liveCards;
+		private final int first, remaining;
+		private long wins, ties, losses;
+
+		EnumerationTask(Evaluator evaluator, long heroMask, long villainMask, long boardMask, long[] liveCards,
+						int first, int remaining)
+		{
+			this.evaluator = evaluator;
+			this.heroMask = heroMask;
+			this.villainMask = villainMask;
+			this.boardMask = boardMask;
+			this.liveCards = liveCards;
+			this.first = first;
+			this.remaining = remaining;
+		}
+
+		@Override
+		public EquityResult call()
+		{
+			if(first < 0)
+				showdown(boardMask);
+			else
+				enumerate(boardMask | liveCards[first], first + 1, remaining);
+			return new EquityResult(wins, ties, losses);
+		}
+
+		private void enumerate(long board, int start, int cards)
+		{
+			if(cards == 0)
+			{
+				showdown(board);
+				return;
+			}
+			for(int i = start; i <= liveCards.length - cards; i++)
+				enumerate(board | liveCards[i], i + 1, cards - 1);
+		}
+
+		private void showdown(long board)
+		{
+			int heroValue = evaluator.hand7Eval(heroMask | board);
+			int villainValue = evaluator.hand7Eval(villainMask | board);
+			if(heroValue > villainValue)
+				wins++;
+			else if(heroValue == villainValue)
+				ties++;
+			else
+				losses++;
+		}
+	}
+}
@@ -0,0 +1,509 @@
+package nl.starapple.eval;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import nl.starapple.poker.Card;
+
+/**
+ * Maps hands to a dense index that is the same for all hands that only differ by a permutation of the suits, and back.
+ * A hand consists of one or more rounds of cards, for example the hole cards and the board; the cards within a round
+ * are unordered. Caches of equities or strategies indexed this way hold each situation once instead of up to 24 times.
+ * <p>
+ * For hole cards and a board of three, four and five cards there are 169, 1,286,792, 13,960,050 and 123,156,254
+ * indices. Cards are given by their number as used by {@link Card}: <code>13 * suit + rank</code>.
+ * <p>
+ * The index is built in the style of Waugh's hand isomorphism indexer. Per suit, the ranks that each round deals in
+ * that suit are indexed as nested combinations. The suits are then ordered by the number of cards they get in each
+ * round; this ordering, the configuration, selects a range of indices, and suits with an equal number of cards in
+ * every round are interchangeable, so their indices are ranked as a multiset within that range.
+ * <p>
+ * Instances are immutable and thread-safe.
+ */
+public class HandIndexer
+{
+	private static final int SUITS = 4;
+	private static final int RANKS = 13;
+	private static final int[][] NCR_RANKS = new int[RANKS + 1][RANKS + 1];
+
+	static
+	{
+		for(int n = 0; n <= RANKS; n++)
+		{
+			NCR_RANKS[n][0] = 1;
+			for(int k = 1; k <= n; k++)
+				NCR_RANKS[n][k] = NCR_RANKS[n - 1][k - 1] + (k <= n - 1 ? NCR_RANKS[n - 1][k] : 0);
+		}
+	}
+
+	/** Indexers of the hole cards alone and of the hole cards with a flop, turn and river board. */
+	public static final HandIndexer PREFLOP = new HandIndexer(2);
+	public static final HandIndexer FLOP = new HandIndexer(2, 3);
+	public static final HandIndexer TURN = new HandIndexer(2, 4);
+	public static final HandIndexer RIVER = new HandIndexer(2, 5);
+
+	/**
+	 * Returns the indexer of the hole cards with a board of the given number of cards (0, 3, 4 or 5).
+	 */
+	public static HandIndexer forBoard(int boardCards)
+	{
+		switch(boardCards)
+		{
+			case 0 : return PREFLOP;
+			case 3 : return FLOP;
+			case 4 : return TURN;
+			case 5 : return RIVER;
+			default : throw new IllegalArgumentException("No street has " + boardCards + " board cards");
+		}
+	}
+
+
+	/**
+	 * A configuration: the number of cards per round of each suit, with the suits in canonical order.
+	 */
+	private static class Configuration
+	{
+		long offset;			// first index of this configuration
+		long size;				// number of indices of this configuration
+		int[][] groupCounts;	// per group of equal suits, the number of cards per round of each suit
+		int[] groupSuits;		// per group, the number of suits in it
+		long[] groupSuitSize;	// per group, the number of distinct suit indices of one suit
+		long[] groupSize;		// per group, the number of multisets of its suit indices
+	}
+
+	private final int[] cardsPerRound;
+	private final int[] cardsBeforeRound;
+	private final long[][] configKeys;			// per round, sorted configuration keys
+	private final Configuration[][] configs;	// per round, in the order of their keys and offsets
+	private final long[] roundSize;
+
+	/**
+	 * Creates an indexer for hands dealt in rounds of the given numbers of cards.
+	 * @param cardsPerRound : the number of cards of each round, for example 2, 3, 1, 1 for the hole cards, flop,
+	 * turn and river as separate rounds
+	 */
+	public HandIndexer(int... cardsPerRound)
+	{
+		int total = 0;
+		for(int cards : cardsPerRound)
+		{
+			if(cards < 1)
+				throw new IllegalArgumentException("Every round must deal cards");
+			total += cards;
+		}
+		if(cardsPerRound.length == 0 || cardsPerRound.length > 4 || total > 52)
+			throw new IllegalArgumentException("Between one and four rounds of at most 52 cards are supported");
+
+		this.cardsPerRound = cardsPerRound.clone();
+		int rounds = cardsPerRound.length;
+		cardsBeforeRound = new int[rounds];
+		for(int r = 1; r < rounds; r++)
+			cardsBeforeRound[r] = cardsBeforeRound[r - 1] + cardsPerRound[r - 1];
+		configKeys = new long[rounds][];
+		configs = new Configuration[rounds][];
+		roundSize = new long[rounds];
+		for(int r = 0; r < rounds; r++)
+			buildConfigurations(r);
+	}
+
+
+	/**
+	 * Returns the number of rounds.
+	 */
+	public int getRounds()
+	{
+		return cardsPerRound.length;
+	}
+
+
+	/**
+	 * Returns the total number of cards dealt up to and including the given round.
+	 */
+	public int getCards(int round)
+	{
+		return cardsBeforeRound[round] + cardsPerRound[round];
+	}
+
+
+	/**
+	 * Returns the number of distinct indices of hands dealt up to and including the given round.
+	 */
+	public long size(int round)
+	{
+		return roundSize[round];
+	}
+
+
+	/**
+	 * Returns the index of the hand made of all rounds of cards.
+	 * @param cards : the card numbers, round after round
+	 */
+	public long index(int[] cards)
+	{
+		return index(cards, cardsPerRound.length - 1);
+	}
+
+
+	/**
+	 * Returns the index of the hand made of the rounds of cards up to and including the given round.
+	 * @param cards : the card numbers, round after round; cards of later rounds are ignored
+	 * @param round : the last round that is indexed
+	 */
+	public long index(int[] cards, int round)
+	{
+		int[][] rankSets = new int[SUITS][round + 1];
+		int[] used = new int[SUITS];
+		for(int r = 0; r <= round; r++)
+			for(int i = cardsBeforeRound[r]; i < cardsBeforeRound[r] + cardsPerRound[r]; i++)
+			{
+				int suit = cards[i] / RANKS, rankBit = 1 << (cards[i] % RANKS);
+				if((used[suit] & rankBit) != 0)
+					throw new IllegalArgumentException("Card " + cards[i] + " is dealt twice");
+				rankSets[suit][r] |= rankBit;
+				used[suit] |= rankBit;
+			}
+
+		int[] codes = new int[SUITS];
+		long[] suitIndices = new long[SUITS];
+		int[] counts = new int[round + 1];
+		for(int suit = 0; suit < SUITS; suit++)
+		{
+			for(int r = 0; r <= round; r++)
+				counts[r] = Integer.bitCount(rankSets[suit][r]);
+			codes[suit] = countsCode(counts);
+			suitIndices[suit] = suitIndex(rankSets[suit], round);
+		}
+
+		// order the suits by decreasing configuration code
+		int[] order = {0, 1, 2, 3};
+		for(int i = 1; i < SUITS; i++)
+			for(int j = i; j > 0 && codes[order[j]] > codes[order[j - 1]]; j--)
+			{
+				int swap = order[j];
+				order[j] = order[j - 1];
+				order[j - 1] = swap;
+			}
+		long key = 0l;
+		for(int i = 0; i < SUITS; i++)
+			key = (key << 16) | codes[order[i]];
+
+		int c = Arrays.binarySearch(configKeys[round], key);
+		Configuration config = configs[round][c];
+		long index = 0l, radix = 1l;
+		int position = 0;
+		long[] group = new long[SUITS];
+		for(int g = 0; g < config.groupSuits.length; g++)
+		{
+			int k = config.groupSuits[g];
+			for(int i = 0; i < k; i++)
+				group[i] = suitIndices[order[position + i]];
+			position += k;
+			Arrays.sort(group, 0, k);
+			long rank = 0l;
+			for(int i = 0; i < k; i++)
+				rank += choose(group[i] + i, i + 1);
+			index += rank * radix;
+			radix *= config.groupSize[g];
+		}
+		return config.offset + index;
+	}
+
+
+	/**
+	 * Returns the index of the hand made of the given cards.
+	 * @param cards : the cards, round after round
+	 * @param round : the last round that is indexed
+	 */
+	public long index(Card[] cards, int round)
+	{
+		int[] numbers = new int[getCards(round)];
+		for(int i = 0; i < numbers.length; i++)
+			numbers[i] = cards[i].getIndex();
+		return index(numbers, round);
+	}
+
+
+	/**
+	 * Writes the canonical hand of the given index to the given array: the card numbers round after round, within a
+	 * round ordered by suit and then by rank.
+	 * @param round : the round the index belongs to
+	 * @param index : an index in the range 0 to size(round) - 1
+	 * @param cards : receives the cards; must hold at least getCards(round) elements
+	 */
+	public void unindex(int round, long index, int[] cards)
+	{
+		if(index < 0 || index >= roundSize[round])
+			throw new IndexOutOfBoundsException("Index " + index + " is not below " + roundSize[round]);
+
+		// find the configuration, the last one whose offset is not above the index
+		Configuration[] roundConfigs = configs[round];
+		int low = 0, high = roundConfigs.length - 1;
+		while(low < high)
+		{
+			int middle = (low + high + 1) >>> 1;
+			if(roundConfigs[middle].offset <= index)
+				low = middle;
+			else
+				high = middle - 1;
+		}
+		Configuration config = roundConfigs[low];
+		long remainder = index - config.offset;
+
+		int[][] rankSets = new int[SUITS][round + 1];
+		int suit = 0;
+		for(int g = 0; g < config.groupSuits.length; g++)
+		{
+			int k = config.groupSuits[g];
+			long rank = remainder % config.groupSize[g];
+			remainder /= config.groupSize[g];
+			for(int i = k; i >= 1; i--)
+			{
+				// the largest b for which C(b, i) does not exceed the rank
+				long lo = i - 1, hi = config.groupSuitSize[g] + i - 2;
+				while(lo < hi)
+				{
+					long middle = (lo + hi + 1) >>> 1;
+					if(choose(middle, i) <= rank)
+						lo = middle;
+					else
+						hi = middle - 1;
+				}
+				rank -= choose(lo, i);
+				decodeSuit(lo - (i - 1), config.groupCounts[g], round, rankSets[suit++]);
+			}
+		}
+
+		int[] position = cardsBeforeRound.clone();
+		for(int s = 0; s < SUITS; s++)
+			for(int r = 0; r <= round; r++)
+				for(int ranks = rankSets[s][r]; ranks != 0; ranks &= ranks - 1)
+					cards[position[r]++] = s * RANKS + Integer.numberOfTrailingZeros(ranks);
+	}
+
+
+	/**
+	 * Returns the canonical version of a hand: the hand with the same index whose cards are written by
+	 * {@link #unindex(int, long, int[])}.
+	 */
+	public int[] canonicalize(int[] cards, int round)
+	{
+		int[] canonical = new int[getCards(round)];
+		unindex(round, index(cards, round), canonical);
+		return canonical;
+	}
+
+
+	/**
+	 * Returns the configuration code of one suit: its number of cards per round as base-14 digits, first round most
+	 * significant, padded to four rounds.
+	 */
+	private static int countsCode(int[] counts)
+	{
+		int code = 0;
+		for(int r = 0; r < 4; r++)
+			code = code * 14 + (r < counts.length ? counts[r] : 0);
+		return code;
+	}
+
+
+	/**
+	 * Returns the index of the ranks dealt in one suit: per round, the combination of ranks among the ranks that
+	 * earlier rounds left in the suit, in colex order, combined in mixed radix with the first round least significant.
+	 */
+	private static long suitIndex(int[] rankSets, int round)
+	{
+		long index = 0l, radix = 1l;
+		int used = 0;
+		for(int r = 0; r <= round; r++)
+		{
+			int ranks = rankSets[r];
+			int count = Integer.bitCount(ranks);
+			long combination = 0l;
+			int i = 1;
+			for(int rest = ranks; rest != 0; rest &= rest - 1, i++)
+			{
+				int rank = Integer.numberOfTrailingZeros(rest);
+				int compressed = rank - Integer.bitCount(used & ((1 << rank) - 1));
+				combination += NCR_RANKS[compressed][i];
+			}
+			index += combination * radix;
+			radix *= NCR_RANKS[RANKS - Integer.bitCount(used)][count];
+			used |= ranks;
+		}
+		return index;
+	}
+
+
+	/**
+	 * The inverse of {@link #suitIndex(int[], int)}: writes the ranks per round of a suit with the given counts.
+	 */
+	private static void decodeSuit(long index, int[] counts, int round, int[] rankSets)
+	{
+		int used = 0;
+		for(int r = 0; r <= round; r++)
+		{
+			int available = RANKS - Integer.bitCount(used);
+			long combinations = NCR_RANKS[available][counts[r]];
+			long combination = index % combinations;
+			index /= combinations;
+
+			int ranks = 0;
+			for(int i = counts[r]; i >= 1; i--)
+			{
+				int compressed = i - 1;
+				while(compressed + 1 < available && NCR_RANKS[compressed + 1][i] <= combination)
+					compressed++;
+				combination -= NCR_RANKS[compressed][i];
+				// the compressed position counts the ranks that earlier rounds left free
+				int rank = -1;
+				for(int free = -1; free < compressed;)
+					if((used & (1 << ++rank)) == 0)
+						free++;
+				ranks |= 1 << rank;
+			}
+			rankSets[r] = ranks;
+			used |= ranks;
+		}
+	}
+
+
+	/**
+	 * Enumerates the configurations of the given round and assigns their index ranges.
+	 */
+	private void buildConfigurations(int round)
+	{
+		TreeMap<Long, int[][]> found = new TreeMap<Long, int[][]>();
+		collectConfigurations(round, 0, 0, new int[SUITS][round + 1], found);
+
+		int n = found.size();
+		configKeys[round] = new long[n];
+		configs[round] = new Configuration[n];
+		long offset = 0l;
+		int c = 0;
+		for(Map.Entry<Long, int[][]> entry : found.entrySet())
+		{
+			int[][] counts = entry.getValue();	// per suit, in canonical order
+			List<int[]> groupCounts = new ArrayList<int[]>();
+			List<Integer> groupSuits = new ArrayList<Integer>();
+			for(int s = 0; s < SUITS; s++)
+			{
+				if(s > 0 && Arrays.equals(counts[s], counts[s - 1]))
+					groupSuits.set(groupSuits.size() - 1, groupSuits.get(groupSuits.size() - 1) + 1);
+				else
+				{
+					groupCounts.add(counts[s]);
+					groupSuits.add(1);
+				}
+			}
+
+			Configuration config = new Configuration();
+			int groups = groupCounts.size();
+			config.groupCounts = groupCounts.toArray(new int[groups][]);
+			config.groupSuits = new int[groups];
+			config.groupSuitSize = new long[groups];
+			config.groupSize = new long[groups];
+			config.size = 1l;
+			for(int g = 0; g < groups; g++)
+			{
+				int k = groupSuits.get(g);
+				long suitSize = 1l;
+				int used = 0;
+				for(int r = 0; r <= round; r++)
+				{
+					suitSize *= NCR_RANKS[RANKS - used][config.groupCounts[g][r]];
+					used += config.groupCounts[g][r];
+				}
+				config.groupSuits[g] = k;
+				config.groupSuitSize[g] = suitSize;
+				config.groupSize[g] = choose(suitSize + k - 1, k);
+				config.size *= config.groupSize[g];
+			}
+			config.offset = offset;
+			offset += config.size;
+			configKeys[round][c] = entry.getKey();
+			configs[round][c++] = config;
+		}
+		roundSize[round] = offset;
+	}
+
+
+	/**
+	 * Distributes the cards of each round over the suits in every possible way and records the distinct
+	 * configurations, keyed by their suit codes in decreasing order.
+	 */
+	private void collectConfigurations(int round, int r, int suit, int[][] counts, TreeMap<Long, int[][]> found)
+	{
+		if(r > round)
+		{
+			int[] codes = new int[SUITS];
+			Integer[] order = {0, 1, 2, 3};
+			for(int s = 0; s < SUITS; s++)
+				codes[s] = countsCode(counts[s]);
+			final int[] sortCodes = codes;
+			Arrays.sort(order, new Comparator<Integer>()
+			{
+				@Override
+				public int compare(Integer a, Integer b)
+				{
+					return sortCodes[b] - sortCodes[a];
+				}
+			});
+			long key = 0l;
+			int[][] sorted = new int[SUITS][];
+			for(int s = 0; s < SUITS; s++)
+			{
+				key = (key << 16) | codes[order[s]];
+				sorted[s] = counts[order[s]].clone();
+			}
+			if(!found.containsKey(key))
+				found.put(key, sorted);
+			return;
+		}
+
+		int dealt = 0;
+		for(int s = 0; s < suit; s++)
+			dealt += counts[s][r];
+		int remaining = cardsPerRound[r] - dealt;
+		if(suit == SUITS - 1)
+		{
+			if(total(counts[suit]) + remaining <= RANKS)
+			{
+				counts[suit][r] = remaining;
+				collectConfigurations(round, r + 1, 0, counts, found);
+			}
+			counts[suit][r] = 0;
+			return;
+		}
+		for(int k = 0; k <= remaining && total(counts[suit]) + k <= RANKS; k++)
+		{
+			counts[suit][r] = k;
+			collectConfigurations(round, r, suit + 1, counts, found);
+		}
+		counts[suit][r] = 0;
+	}
+
+	private static int total(int[] counts)
+	{
+		int total = 0;
+		for(int count : counts)
+			total += count;
+		return total;
+	}
+
+	/**
+	 * Returns the binomial coefficient C(n, k), 0 when k > n.
+	 */
+	private static long choose(long n, int k)
+	{
+		if(k < 0 || k > n)
+			return 0l;
+		long result = 1l;
+		for(int i = 0; i < k; i++)
+			result = result * (n - i) / (i + 1);
+		return result;
+	}
+}
@@ -0,0 +1,358 @@
+package nl.starapple.eval;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import nl.starapple.poker.Card;
+import nl.starapple.poker.Hand;
+
+/**
+ * A range of starting hands: a set of the 1326 combinations of two cards, kept as a bitset. A combination of the cards
+ * with numbers a < b (as used by {@link Card}) has the index <code>b * (b - 1) / 2 + a</code>.
+ * <p>
+ * Ranges are parsed from the common notation, a comma separated list of:
+ * <ul>
+ * <li><code>QQ</code>, <code>AKs</code>, <code>AKo</code>, <code>AK</code>: a pair, suited, offsuit or all combinations</li>
+ * <li><code>QQ+</code>, <code>A2s+</code>, <code>K9+</code>: the hand and the ones with a higher second rank, up to
+ * one below the first rank for non-pairs</li>
+ * <li><code>22-55</code>, <code>A2s-A5s</code>, <code>T9s-65s</code>: all hands between two hands with the same first
+ * rank or the same gap</li>
+ * <li><code>AhKh</code>: one combination</li>
+ * </ul>
+ * Ranges are mutable and not thread-safe; share them between threads only after they are built.
+ */
+public class HandRange
+{
+	/** The number of combinations of two cards. */
+	public static final int COMBOS = 1326;
+
+	private static final int WORDS = (COMBOS + 63) / 64;
+	private static final String RANKS = "23456789TJQKA";
+	private static final String SUITS = "shcd";
+
+	/** The card numbers of each combination, lowest first. */
+	static final int[] COMBO_CARD1 = new int[COMBOS];
+	static final int[] COMBO_CARD2 = new int[COMBOS];
+	/** The HandEval encoding of each combination. */
+	static final long[] COMBO_MASK = new long[COMBOS];
+	/** Per card number, the bitset of the combinations that hold that card. */
+	private static final long[][] CARD_COMBOS = new long[52][WORDS];
+
+	static
+	{
+		for(int b = 1; b < 52; b++)
+			for(int a = 0; a < b; a++)
+			{
+				int combo = comboIndex(a, b);
+				COMBO_CARD1[combo] = a;
+				COMBO_CARD2[combo] = b;
+				COMBO_MASK[combo] = CardMasks.CARD[a] | CardMasks.CARD[b];
+				CARD_COMBOS[a][combo >>> 6] |= 1l << combo;
+				CARD_COMBOS[b][combo >>> 6] |= 1l << combo;
+			}
+	}
+
+	private final long[] bits = new long[WORDS];
+
+	/**
+	 * Creates an empty range.
+	 */
+	public HandRange() {}
+
+
+	/**
+	 * Returns a range of all 1326 combinations.
+	 */
+	public static HandRange all()
+	{
+		HandRange range = new HandRange();
+		for(int combo = 0; combo < COMBOS; combo++)
+			range.add(combo);
+		return range;
+	}
+
+
+	/**
+	 * Parses a range in the common notation, like <code>"AKs,QQ+,T9s-65s"</code>.
+	 * @param string : the comma separated hands and hand groups; whitespace is ignored
+	 * @throws IllegalArgumentException if a part of the string is not understood
+	 */
+	public static HandRange parse(String string)
+	{
+		HandRange range = new HandRange();
+		// whitespace may appear anywhere, even inside a hand like "A K s"
+		for(String part : string.replaceAll("\\s+", "").split(","))
+		{
+			if(part.length() == 0)
+				continue;
+			int dash = part.indexOf('-');
+			if(dash >= 0)
+				range.addSpan(part, part.substring(0, dash), part.substring(dash + 1));
+			else if(part.endsWith("+"))
+			{
+				int[] hand = parseHand(part, part.substring(0, part.length() - 1));
+				int top = hand[0] == hand[1] ? 12 : hand[0] - 1;
+				for(int rank = hand[1]; rank <= top; rank++)
+					range.addHand(hand[0] == hand[1] ? rank : hand[0], rank, hand[2]);
+			}
+			else if(part.length() == 4 && SUITS.indexOf(part.charAt(1)) >= 0 && SUITS.indexOf(part.charAt(3)) >= 0)
+			{
+				int card1 = cardNumber(part, part.charAt(0), part.charAt(1));
+				int card2 = cardNumber(part, part.charAt(2), part.charAt(3));
+				if(card1 == card2)
+					throw new IllegalArgumentException("Hand holds the same card twice: " + part);
+				range.add(comboIndex(card1, card2));
+			}
+			else
+			{
+				int[] hand = parseHand(part, part);
+				range.addHand(hand[0], hand[1], hand[2]);
+			}
+		}
+		return range;
+	}
+
+
+	/**
+	 * Adds all hands from one hand to another, either with the same first rank or with the same gap between the ranks.
+	 */
+	private void addSpan(String part, String from, String to)
+	{
+		int[] first = parseHand(part, from);
+		int[] last = parseHand(part, to);
+		if(first[2] != last[2])
+			throw new IllegalArgumentException("Both ends must be pairs, suited or offsuit alike: " + part);
+		if(first[0] == first[1] && last[0] == last[1])
+		{
+			for(int rank = Math.min(first[0], last[0]); rank <= Math.max(first[0], last[0]); rank++)
+				addHand(rank, rank, first[2]);
+		}
+		else if(first[0] == last[0])
+		{
+			for(int rank = Math.min(first[1], last[1]); rank <= Math.max(first[1], last[1]); rank++)
+				addHand(first[0], rank, first[2]);
+		}
+		else if(first[0] - first[1] == last[0] - last[1])
+		{
+			int gap = first[0] - first[1];
+			for(int rank = Math.min(first[0], last[0]); rank <= Math.max(first[0], last[0]); rank++)
+				addHand(rank, rank - gap, first[2]);
+		}
+		else
+			throw new IllegalArgumentException("Ends have neither the same first rank nor the same gap: " + part);
+	}
+
+
+	/**
+	 * Parses a hand like "QQ", "AKs", "AKo" or "AK" into its high rank, low rank and kind: 0 for all combinations,
+	 * 1 for suited and 2 for offsuit.
+	 */
+	private static int[] parseHand(String part, String hand)
+	{
+		if(hand.length() < 2 || hand.length() > 3)
+			throw new IllegalArgumentException("Not a hand: " + part);
+		int rank1 = rank(part, hand.charAt(0));
+		int rank2 = rank(part, hand.charAt(1));
+		int kind = 0;
+		if(hand.length() == 3)
+		{
+			char suitedness = Character.toLowerCase(hand.charAt(2));
+			if(suitedness == 's')
+				kind = 1;
+			else if(suitedness == 'o')
+				kind = 2;
+			else
+				throw new IllegalArgumentException("Expected 's' or 'o' in: " + part);
+		}
+		if(rank1 == rank2 && kind == 1)
+			throw new IllegalArgumentException("A pair cannot be suited: " + part);
+		return new int[] {Math.max(rank1, rank2), Math.min(rank1, rank2), kind};
+	}
+
+	private static int rank(String part, char c)
+	{
+		int rank = RANKS.indexOf(Character.toUpperCase(c));
+		if(rank < 0)
+			throw new IllegalArgumentException("Unknown rank '" + c + "' in: " + part);
+		return rank;
+	}
+
+	private static int cardNumber(String part, char rank, char suit)
+	{
+		int suitNumber = SUITS.indexOf(Character.toLowerCase(suit));
+		if(suitNumber < 0)
+			throw new IllegalArgumentException("Unknown suit '" + suit + "' in: " + part);
+		return suitNumber * 13 + rank(part, rank);
+	}
+
+
+	/**
+	 * Adds the combinations of a hand given by its ranks and kind (0 all, 1 suited, 2 offsuit).
+	 */
+	private void addHand(int high, int low, int kind)
+	{
+		for(int suit1 = 0; suit1 < 4; suit1++)
+			for(int suit2 = 0; suit2 < 4; suit2++)
+			{
+				if(high == low ? suit1 >= suit2 : kind == 1 ? suit1 != suit2 : kind == 2 && suit1 == suit2)
+					continue;
+				add(comboIndex(suit1 * 13 + high, suit2 * 13 + low));
+			}
+	}
+
+
+	/**
+	 * Returns the index of the combination of the two cards with the given numbers, in any order.
+	 */
+	public static int comboIndex(int card1, int card2)
+	{
+		int a = Math.min(card1, card2), b = Math.max(card1, card2);
+		return b * (b - 1) / 2 + a;
+	}
+
+
+	/**
+	 * Returns the index of the combination of the cards of the given hand.
+	 */
+	public static int comboIndex(Hand hand)
+	{
+		return comboIndex(hand.getCard1().getIndex(), hand.getCard2().getIndex());
+	}
+
+
+	/**
+	 * Returns the hand of the combination with the given index.
+	 */
+	public static Hand comboHand(int combo)
+	{
+		return new Hand(Card.getCard(COMBO_CARD2[combo]), Card.getCard(COMBO_CARD1[combo]));
+	}
+
+
+	/**
+	 * Adds the combination with the given index.
+	 */
+	public void add(int combo)
+	{
+		bits[combo >>> 6] |= 1l << combo;
+	}
+
+
+	/**
+	 * Adds the combination of the cards of the given hand.
+	 */
+	public void add(Hand hand)
+	{
+		add(comboIndex(hand));
+	}
+
+
+	/**
+	 * Adds all combinations of the given range.
+	 */
+	public void addAll(HandRange other)
+	{
+		for(int i = 0; i < WORDS; i++)
+			bits[i] |= other.bits[i];
+	}
+
+
+	/**
+	 * Removes the combination with the given index.
+	 */
+	public void remove(int combo)
+	{
+		bits[combo >>> 6] &= ~(1l << combo);
+	}
+
+
+	/**
+	 * Returns whether the range holds the combination with the given index.
+	 */
+	public boolean contains(int combo)
+	{
+		return (bits[combo >>> 6] & (1l << combo)) != 0;
+	}
+
+
+	/**
+	 * Returns the number of combinations in the range.
+	 */
+	public int size()
+	{
+		int size = 0;
+		for(long word : bits)
+			size += Long.bitCount(word);
+		return size;
+	}
+
+
+	/**
+	 * Returns the combinations of this range that hold none of the given dead cards.
+	 * @param dead : the dead cards in the HandEval encoding
+	 */
+	public HandRange without(long dead)
+	{
+		HandRange live = new HandRange();
+		System.arraycopy(bits, 0, live.bits, 0, WORDS);
+		for(long rest = dead; rest != 0; rest &= rest - 1)
+		{
+			long[] conflicts = CARD_COMBOS[CardMasks.index(rest & -rest)];
+			for(int i = 0; i < WORDS; i++)
+				live.bits[i] &= ~conflicts[i];
+		}
+		return live;
+	}
+
+
+	/**
+	 * Returns the combinations of this range that hold none of the given cards, which may be null.
+	 */
+	public HandRange without(Card[] dead)
+	{
+		return without(CardMasks.of(dead));
+	}
+
+
+	/**
+	 * Returns the indices of the combinations in the range, in increasing order.
+	 */
+	public int[] getCombos()
+	{
+		int[] combos = new int[size()];
+		int n = 0;
+		for(int i = 0; i < WORDS; i++)
+			for(long word = bits[i]; word != 0; word &= word - 1)
+				combos[n++] = (i << 6) + Long.numberOfTrailingZeros(word);
+		return combos;
+	}
+
+
+	/**
+	 * Returns the hands of the range.
+	 */
+	public List<Hand> getHands()
+	{
+		List<Hand> hands = new ArrayList<Hand>(size());
+		for(int combo : getCombos())
+			hands.add(comboHand(combo));
+		return hands;
+	}
+
+
+	/**
+	 * Returns a String representation of this range: the number of combinations and the combinations themselves.
+	 */
+	public String toString()
+	{
+		StringBuilder str = new StringBuilder();
+		str.append(size()).append(" combos");
+		String separator = ": ";
+		for(int combo : getCombos())
+		{
+			str.append(separator).append(Card.getCard(COMBO_CARD2[combo])).append(Card.getCard(COMBO_CARD1[combo]));
+			separator = ",";
+		}
+		return str.toString();
+	}
+}
@@ -0,0 +1,238 @@
+package nl.starapple.eval;
+
+import nl.starapple.poker.Card;
+import nl.starapple.poker.Hand;
+
+/**
+ * Calculates the hand strength and potential of hole cards on a flop, turn or river board against one random opposing
+ * hand, by enumerating all opposing hands and all runouts in one pass. Each opposing hand is set up once with an
+ * {@link IncrementalEval}, after which every runout costs one incremental evaluation; on the flop that are about a
+ * million evaluations.
+ * <p>
+ * Results are kept in a bounded cache keyed by the suit-isomorphic index of {@link HandIndexer}, so repeated queries
+ * within a hand, and queries for the same hand on boards that only differ by a permutation of the suits, cost one
+ * hash lookup. The cache is direct-mapped on primitive long keys: a new result replaces the one in its slot. All
+ * methods are thread-safe.
+ */
+public class HandStrength
+{
+	/** The default number of cached results. */
+	public static final int DEFAULT_CACHE_SIZE = 1 << 16;
+
+	private static final int AHEAD = 0, TIED = 1, BEHIND = 2;
+
+	private final long[] cacheKeys;
+	private final HandStrengthResult[] cacheValues;
+	private final int cacheMask;
+	private long hits, misses;
+
+	/**
+	 * Creates a calculator with a cache of {@link #DEFAULT_CACHE_SIZE} results.
+	 */
+	public HandStrength()
+	{
+		this(DEFAULT_CACHE_SIZE);
+	}
+
+
+	/**
+	 * @param cacheSize : the maximum number of cached results, rounded up to a power of two
+	 */
+	public HandStrength(int cacheSize)
+	{
+		int size = Integer.highestOneBit(Math.max(cacheSize - 1, 1)) << 1;
+		cacheKeys = new long[size];
+		cacheValues = new HandStrengthResult[size];
+		cacheMask = size - 1;
+	}
+
+
+	/**
+	 * Returns the strength of the given hole cards on the given board.
+	 * @param hand : the hole cards
+	 * @param board : the three, four or five cards on the table
+	 */
+	public HandStrengthResult compute(Hand hand, Card[] board)
+	{
+		return compute(CardMasks.of(hand), CardMasks.of(board));
+	}
+
+
+	/**
+	 * Returns the strength of the given hole cards on the given board, both in the HandEval encoding.
+	 * @param hole : the two hole cards
+	 * @param board : the three, four or five cards on the table
+	 */
+	public HandStrengthResult compute(long hole, long board)
+	{
+		int boardCards = Long.bitCount(board);
+		if(Long.bitCount(hole) != 2 || boardCards < 3 || boardCards > 5 || (hole & board) != 0)
+			throw new IllegalArgumentException("Hand strength needs two hole cards and a board of 3 to 5 other cards");
+
+		int[] cards = new int[2 + boardCards];
+		int n = 0;
+		for(long rest = hole; rest != 0; rest &= rest - 1)
+			cards[n++] = CardMasks.index(rest & -rest);
+		for(long rest = board; rest != 0; rest &= rest - 1)
+			cards[n++] = CardMasks.index(rest & -rest);
+		// the index is below 2^27 for every street, so the street fits in the bits above it; 0 is never a key
+		long key = ((long) boardCards << 32) | HandIndexer.forBoard(boardCards).index(cards, 1);
+
+		HandStrengthResult result = lookup(key);
+		if(result == null)
+		{
+			result = enumerate(hole, board);
+			store(key, result);
+		}
+		return result;
+	}
+
+
+	/**
+	 * Returns the number of queries that were answered from the cache.
+	 */
+	public synchronized long getCacheHits()
+	{
+		return hits;
+	}
+
+
+	/**
+	 * Returns the number of queries that needed an enumeration.
+	 */
+	public synchronized long getCacheMisses()
+	{
+		return misses;
+	}
+
+
+	private synchronized HandStrengthResult lookup(long key)
+	{
+		int slot = slot(key);
+		if(cacheKeys[slot] == key)
+		{
+			hits++;
+			return cacheValues[slot];
+		}
+		misses++;
+		return null;
+	}
+
+
+	private synchronized void store(long key, HandStrengthResult result)
+	{
+		int slot = slot(key);
+		cacheKeys[slot] = key;
+		cacheValues[slot] = result;
+	}
+
+
+	private int slot(long key)
+	{
+		long hash = key * 0x9E3779B97F4A7C15l;
+		return (int) (hash >>> 32) & cacheMask;
+	}
+
+
+	/**
+	 * Enumerates every opposing hand with every runout of the board to the river.
+	 */
+	private static HandStrengthResult enumerate(long hole, long board)
+	{
+		long[] liveCards = CardMasks.liveCards(hole | board);
+		int missingCards = 5 - Long.bitCount(board);
+
+		// the runouts, as one or two cards
+		int runouts = missingCards == 0 ? 1 : missingCards == 1 ? liveCards.length
+				: liveCards.length * (liveCards.length - 1) / 2;
+		long[] runout1 = new long[runouts], runout2 = new long[runouts];
+		if(missingCards == 1)
+			System.arraycopy(liveCards, 0, runout1, 0, liveCards.length);
+		else if(missingCards == 2)
+		{
+			int r = 0;
+			for(int i = 0; i < liveCards.length; i++)
+				for(int j = i + 1; j < liveCards.length; j++, r++)
+				{
+					runout1[r] = liveCards[i];
+					runout2[r] = liveCards[j];
+				}
+		}
+
+		IncrementalEval eval = new IncrementalEval();
+		eval.set(hole | board);
+		int heroNow = eval.getValue();
+		int[] heroRiver = new int[runouts];
+		for(int r = 0; r < runouts; r++)
+			heroRiver[r] = river(eval, missingCards, runout1[r], runout2[r]);
+
+		long[][] transitions = new long[3][3];	// by relation now and at the river
+		long[] riverScore = new long[runouts];	// per runout: two points per beaten hand, one per tie
+		long[] riverHands = new long[runouts];
+		for(int i = 0; i < liveCards.length; i++)
+			for(int j = i + 1; j < liveCards.length; j++)
+			{
+				long opponent = liveCards[i] | liveCards[j];
+				eval.set(opponent | board);
+				int now = relation(heroNow, eval.getValue());
+				long[] row = transitions[now];
+				for(int r = 0; r < runouts; r++)
+				{
+					if(((runout1[r] | runout2[r]) & opponent) != 0)
+						continue;
+					int river = relation(heroRiver[r], river(eval, missingCards, runout1[r], runout2[r]));
+					row[river]++;
+					riverScore[r] += 2 - river;
+					riverHands[r]++;
+				}
+			}
+
+		long[] nowTotals = new long[3];
+		for(int now = 0; now < 3; now++)
+			for(int river = 0; river < 3; river++)
+				nowTotals[now] += transitions[now][river];
+		long total = nowTotals[AHEAD] + nowTotals[TIED] + nowTotals[BEHIND];
+		double handStrength = (nowTotals[AHEAD] + nowTotals[TIED] / 2.0) / total;
+
+		double positivePotential = 0, negativePotential = 0;
+		if(missingCards > 0)
+		{
+			double behind = nowTotals[BEHIND] + nowTotals[TIED] / 2.0;
+			if(behind > 0)
+				positivePotential = (transitions[BEHIND][AHEAD] + transitions[BEHIND][TIED] / 2.0
+									 + transitions[TIED][AHEAD] / 2.0) / behind;
+			double ahead = nowTotals[AHEAD] + nowTotals[TIED] / 2.0;
+			if(ahead > 0)
+				negativePotential = (transitions[AHEAD][BEHIND] + transitions[AHEAD][TIED] / 2.0
+									 + transitions[TIED][BEHIND] / 2.0) / ahead;
+		}
+
+		double squared = 0;
+		for(int r = 0; r < runouts; r++)
+		{
+			double strength = riverScore[r] / (2.0 * riverHands[r]);
+			squared += strength * strength;
+		}
+		return new HandStrengthResult(handStrength, positivePotential, negativePotential, squared / runouts);
+	}
+
+
+	/**
+	 * Returns the value at the river of the cards in the evaluator with the given runout.
+	 */
+	private static int river(IncrementalEval eval, int missingCards, long card1, long card2)
+	{
+		switch(missingCards)
+		{
+			case 0 : return eval.getValue();
+			case 1 : return eval.evalWith(card1);
+			default : return eval.evalWith(card1, card2);
+		}
+	}
+
+
+	private static int relation(int heroValue, int opponentValue)
+	{
+		return heroValue > opponentValue ? AHEAD : heroValue == opponentValue ? TIED : BEHIND;
+	}
+}
@@ -0,0 +1,86 @@
+package nl.starapple.eval;
+
+/**
+ * The strength of a hand on a board against one random opposing hand: the current hand strength, the potentials to
+ * improve or to fall behind until the river, and the measures combining them.
+ */
+public class HandStrengthResult
+{
+	private final double handStrength;
+	private final double positivePotential;
+	private final double negativePotential;
+	private final double handStrengthSquared;
+
+	/**
+	 * @param handStrength : the share of opposing hands that are beaten now, ties counting as half
+	 * @param positivePotential : the chance to be ahead at the river when behind now
+	 * @param negativePotential : the chance to be behind at the river when ahead now
+	 * @param handStrengthSquared : the expectation over all runouts of the squared hand strength at the river
+	 */
+	public HandStrengthResult(double handStrength, double positivePotential, double negativePotential,
+							  double handStrengthSquared)
+	{
+		this.handStrength = handStrength;
+		this.positivePotential = positivePotential;
+		this.negativePotential = negativePotential;
+		this.handStrengthSquared = handStrengthSquared;
+	}
+
+
+	/**
+	 * Returns the hand strength (HS): the share of opposing hands that are beaten on the current board, ties counting
+	 * as half.
+	 */
+	public double getHandStrength()
+	{
+		return handStrength;
+	}
+
+
+	/**
+	 * Returns the positive potential (PPot): the chance that a hand that is behind or tied now is ahead at the river.
+	 */
+	public double getPositivePotential()
+	{
+		return positivePotential;
+	}
+
+
+	/**
+	 * Returns the negative potential (NPot): the chance that a hand that is ahead or tied now is behind at the river.
+	 */
+	public double getNegativePotential()
+	{
+		return negativePotential;
+	}
+
+
+	/**
+	 * Returns the effective hand strength: <code>HS * (1 - NPot) + (1 - HS) * PPot</code>.
+	 */
+	public double getEffectiveHandStrength()
+	{
+		return handStrength * (1 - negativePotential) + (1 - handStrength) * positivePotential;
+	}
+
+
+	/**
+	 * Returns the expected squared hand strength (EHS&sup2;): the average over all runouts of the square of the hand
+	 * strength at the river. It rewards hands whose strength varies, like draws, over hands of the same average
+	 * strength.
+	 */
+	public double getHandStrengthSquared()
+	{
+		return handStrengthSquared;
+	}
+
+
+	/**
+	 * Returns a String representation of this result.
+	 */
+	public String toString()
+	{
+		return String.format("HS %.4f, PPot %.4f, NPot %.4f, EHS %.4f, EHS2 %.4f", handStrength, positivePotential,
+							 negativePotential, getEffectiveHandStrength(), handStrengthSquared);
+	}
+}
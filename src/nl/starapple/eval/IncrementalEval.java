@@ -0,0 +1,199 @@
+package nl.starapple.eval;
+
+import com.stevebrecher.HandEval;
+
+/**
+ * Evaluator state that is built once per flop and then extended street by street. Setting the five cards of the hole
+ * cards and the flop computes the suit fields and the base-5 rank pattern key of the hand; a turn or river card then
+ * only adds one bit to its suit field and one power of five to the key, followed by a flush check and a lookup in a
+ * perfect hash table. Rollouts that enumerate the turn and river cards of one flop thus share all of the flop work.
+ * <p>
+ * The values are exactly those of {@link HandEval#hand5Eval(long)}, {@link HandEval#hand6Eval(long)} and
+ * {@link HandEval#hand7Eval(long)} for the same cards. The tables are shared with {@link LookupEval}. An instance is
+ * not thread-safe; use one per thread.
+ */
+public final class IncrementalEval
+{
+	private static final RankPatternTable fiveCards = new RankPatternTable(5);
+	private static final RankPatternTable sixCards = new RankPatternTable(6);
+
+	/* 5^rank, the change of the rank pattern key for a card of that rank. */
+	private static final int[] POWER = new int[13];
+
+	static
+	{
+		POWER[0] = 1;
+		for(int rank = 1; rank < 13; rank++)
+			POWER[rank] = POWER[rank - 1] * 5;
+	}
+
+	private final int[] suitFields = new int[4];
+	private long cards;
+	private int cardCount;
+	private int key;
+	private int flush;	// value of the flush or straight flush of the current cards, 0 if there is none
+
+	/**
+	 * Sets the state to the hole cards and the flop.
+	 * @param hole : the two hole cards in the HandEval encoding
+	 * @param flop : the three flop cards in the HandEval encoding
+	 */
+	public void setFlop(long hole, long flop)
+	{
+		set(hole | flop);
+	}
+
+
+	/**
+	 * Sets the state to the given five, six or seven cards.
+	 * @param hand : the cards in the HandEval encoding
+	 */
+	public void set(long hand)
+	{
+		int count = Long.bitCount(hand);
+		if(count < 5 || count > 7)
+			throw new IllegalArgumentException("An incremental evaluation takes 5 to 7 cards, not " + count);
+		cards = hand;
+		cardCount = count;
+		key = 0;
+		flush = 0;
+		for(int suit = 0; suit < 4; suit++)
+		{
+			suitFields[suit] = (int) (hand >>> (16 * suit)) & 0x1FFF;
+			key += RankPatternTable.QUINARY[suitFields[suit]];
+			flush |= LookupEval.flushValue[suitFields[suit]];
+		}
+	}
+
+
+	/**
+	 * Adds a card to the state, for example the turn after the flop.
+	 * @param card : one card in the HandEval encoding, not yet in the state
+	 */
+	public void addCard(long card)
+	{
+		if(cardCount == 7 || (cards & card) != 0)
+			throw new IllegalStateException("Cannot add " + Long.toHexString(card) + " to " + Long.toHexString(cards));
+		int bit = Long.numberOfTrailingZeros(card);
+		int suit = bit >>> 4;
+		suitFields[suit] |= 1 << (bit & 0xF);
+		key += POWER[bit & 0xF];
+		cards |= card;
+		cardCount++;
+		int suitFlush = LookupEval.flushValue[suitFields[suit]];
+		if(suitFlush != 0)
+			flush = suitFlush;	// only this suit can hold the flush now, and it did not get worse
+	}
+
+
+	/**
+	 * Removes a card that was added, for example to go back from the turn to the flop.
+	 * @param card : one card in the HandEval encoding that is in the state
+	 */
+	public void removeCard(long card)
+	{
+		if(cardCount == 5 || (cards & card) == 0)
+			throw new IllegalStateException("Cannot remove " + Long.toHexString(card) + " from " + Long.toHexString(cards));
+		int bit = Long.numberOfTrailingZeros(card);
+		int suit = bit >>> 4;
+		suitFields[suit] &= ~(1 << (bit & 0xF));
+		key -= POWER[bit & 0xF];
+		cards &= ~card;
+		cardCount--;
+		if(flush != 0)
+			flush = LookupEval.flushValue[suitFields[suit]] | otherFlushes(suit);
+	}
+
+
+	/**
+	 * Returns the cards of the state in the HandEval encoding.
+	 */
+	public long getCards()
+	{
+		return cards;
+	}
+
+
+	/**
+	 * Returns the number of cards of the state.
+	 */
+	public int getCardCount()
+	{
+		return cardCount;
+	}
+
+
+	/**
+	 * Returns the value of the best 5-card high poker hand from the cards of the state.
+	 */
+	public int getValue()
+	{
+		if(flush != 0)
+			return flush;
+		return table(cardCount).get(key);
+	}
+
+
+	/**
+	 * Returns the value of the cards of the state plus one more card, without changing the state.
+	 * @param card : one card in the HandEval encoding, not in the state; the state must hold at most six cards
+	 */
+	public int evalWith(long card)
+	{
+		int bit = Long.numberOfTrailingZeros(card);
+		int value = LookupEval.flushValue[suitFields[bit >>> 4] | (1 << (bit & 0xF))];
+		if(value == 0)
+			value = flush;
+		if(value != 0)
+			return value;
+		return table(cardCount + 1).get(key + POWER[bit & 0xF]);
+	}
+
+
+	/**
+	 * Returns the value of the cards of the state plus two more cards, without changing the state, for example the
+	 * turn and river of a flop.
+	 * @param card1 : one card in the HandEval encoding, not in the state
+	 * @param card2 : another card in the HandEval encoding, not in the state; the state must hold five cards
+	 */
+	public int evalWith(long card1, long card2)
+	{
+		int bit1 = Long.numberOfTrailingZeros(card1);
+		int bit2 = Long.numberOfTrailingZeros(card2);
+		int suit1 = bit1 >>> 4, suit2 = bit2 >>> 4;
+		int value;
+		if(suit1 == suit2)
+			value = LookupEval.flushValue[suitFields[suit1] | (1 << (bit1 & 0xF)) | (1 << (bit2 & 0xF))];
+		else
+			value = LookupEval.flushValue[suitFields[suit1] | (1 << (bit1 & 0xF))]
+					| LookupEval.flushValue[suitFields[suit2] | (1 << (bit2 & 0xF))];
+		// with seven cards only one suit can hold five, so at most one of the values is not 0, and a new card in the
+		// suit of an existing flush gives a value at least as high as that flush
+		if(value == 0)
+			value = flush;
+		if(value != 0)
+			return value;
+		return LookupEval.sevenCards.get(key + POWER[bit1 & 0xF] + POWER[bit2 & 0xF]);
+	}
+
+
+	private int otherFlushes(int suit)
+	{
+		int value = 0;
+		for(int other = 0; other < 4; other++)
+			if(other != suit)
+				value |= LookupEval.flushValue[suitFields[other]];
+		return value;
+	}
+
+
+	private static RankPatternTable table(int cards)
+	{
+		switch(cards)
+		{
+			case 5 : return fiveCards;
+			case 6 : return sixCards;
+			default : return LookupEval.sevenCards;
+		}
+	}
+}
@@ -0,0 +1,90 @@
+package nl.starapple.eval;
+
+import com.stevebrecher.HandEval;
+
+/**
+ * Table driven 7-card high evaluator. Takes hands in the same encoding as {@link HandEval} and returns exactly the
+ * same values as {@link HandEval#hand7Eval(long)}, but replaces its switch on the number of distinct ranks by a flush
+ * check and a single lookup in a perfect hash table of all 49,205 rank patterns of seven cards.
+ * <p>
+ * The tables take about 700 KB and are built from HandEval itself when this class is first used, which takes in the
+ * order of a hundred milliseconds. All of the methods are thread-safe.
+ */
+public final class LookupEval
+{
+	private LookupEval() {}	// no instances
+
+	/* Value of the best flush or straight flush in a suit field with at least five ranks; 0 for fewer ranks. Shared
+	 * with IncrementalEval, as are the rank patterns. */
+	static final int[] flushValue = new int[0x2000];
+
+	static final RankPatternTable sevenCards = new RankPatternTable(7);
+
+	static
+	{
+		// With seven cards, a hand that holds five or more cards of one suit cannot hold quads or a full house, so
+		// its value only depends on that suit. Fill up the other cards with deuces of other suits.
+		for(int mask = 0; mask < flushValue.length; mask++)
+		{
+			int bits = Integer.bitCount(mask);
+			if(bits < 5 || bits > 7)
+				continue;
+			long hand = mask;
+			for(int filler = bits; filler < 7; filler++)
+				hand |= 1l << (16 * (filler - 4));
+			flushValue[mask] = HandEval.hand7Eval(hand);
+		}
+	}
+
+
+	/**
+	 * Returns the value of the best 5-card high poker hand from 7 cards, equal to the value returned by
+	 * {@link HandEval#hand7Eval(long)}.
+	 * @param hand bit mask with one bit set for each of 7 cards.
+	 * @return the value of the best 5-card high poker hand.
+	 */
+	public static int hand7Eval(long hand)
+	{
+		final int c = (int)hand & 0x1FFF;
+		final int d = ((int)hand >>> 16) & 0x1FFF;
+		final int h = (int)(hand >>> 32) & 0x1FFF;
+		final int s = (int)(hand >>> 48) & 0x1FFF;
+
+		/* at most one suit can hold five or more of the seven cards */
+		final int flush = flushValue[c] | flushValue[d] | flushValue[h] | flushValue[s];
+		if (flush != 0)
+			return flush;
+		return sevenCards.get(RankPatternTable.QUINARY[c] + RankPatternTable.QUINARY[d]
+							  + RankPatternTable.QUINARY[h] + RankPatternTable.QUINARY[s]);
+	}
+
+
+	/**
+	 * Evaluates a slice of an array of 7-card hands with {@link #hand7Eval(long)}. Nothing is allocated. The loop is
+	 * unrolled by four so that the table loads of independent hands overlap.
+	 * @param hands bit masks with one bit set for each of 7 cards.
+	 * @param offset index in hands of the first hand to evaluate.
+	 * @param count number of hands to evaluate.
+	 * @param out receives the values of the hands.
+	 * @param outOffset index in out of the value of the first hand.
+	 */
+	public static void hand7EvalBatch(long[] hands, int offset, int count, int[] out, int outOffset)
+	{
+		if (offset < 0 || count < 0 || offset > hands.length - count || outOffset < 0 || outOffset > out.length - count)
+			throw new IndexOutOfBoundsException();
+		int i = 0;
+		for (; i < count - 3; i += 4)
+		{
+			final int v0 = hand7Eval(hands[offset + i]);
+			final int v1 = hand7Eval(hands[offset + i + 1]);
+			final int v2 = hand7Eval(hands[offset + i + 2]);
+			final int v3 = hand7Eval(hands[offset + i + 3]);
+			out[outOffset + i] = v0;
+			out[outOffset + i + 1] = v1;
+			out[outOffset + i + 2] = v2;
+			out[outOffset + i + 3] = v3;
+		}
+		for (; i < count; ++i)
+			out[outOffset + i] = hand7Eval(hands[offset + i]);
+	}
+}
@@ -0,0 +1,170 @@
+package nl.starapple.eval;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+
+import nl.starapple.poker.Card;
+import nl.starapple.poker.Hand;
+
+/**
+ * Estimates the heads-up equity of a hand against another hand or a range of hands by sampling random opponent hands
+ * and board runouts. The samples are split over independent tasks, one per thread of the executor, each with its own
+ * random generator and counters, so the tasks share no mutable state.
+ * <p>
+ * A calculation is bounded by a number of samples, by a time limit, or by both. With a time limit of a few hundred
+ * milliseconds the estimate fits within the time a bot gets for a move.
+ */
+public class MonteCarloEquity
+{
+	private final Evaluator evaluator;
+	private final ExecutorService executor;
+	private final int parallelism;
+	private final Random seeds;
+
+	/**
+	 * Creates a calculator that uses {@link Evaluator#BRECHER} and the shared pool of {@link EvalThreads}.
+	 */
+	public MonteCarloEquity()
+	{
+		this(Evaluator.BRECHER, EvalThreads.getExecutor(), EvalThreads.getParallelism(), System.nanoTime());
+	}
+
+
+	/**
+	 * @param evaluator : the evaluator for the showdowns
+	 * @param executor : the executor the sampling tasks are run on
+	 * @param parallelism : the number of tasks a calculation is split into
+	 * @param seed : the seed from which the seeds of the tasks are drawn
+	 */
+	public MonteCarloEquity(Evaluator evaluator, ExecutorService executor, int parallelism, long seed)
+	{
+		this.evaluator = evaluator;
+		this.executor = executor;
+		this.parallelism = Math.max(parallelism, 1);
+		this.seeds = new Random(seed);
+	}
+
+
+	/**
+	 * Estimates the equity of a hand against another hand from the given number of random runouts.
+	 * @param hero : the hand to calculate the equity of
+	 * @param villain : the opposing hand
+	 * @param board : the zero to five cards on the table, may be null
+	 * @param samples : the number of runouts
+	 */
+	public EquityResult compute(Hand hero, Hand villain, Card[] board, long samples)
+	{
+		return compute(hero, Collections.singletonList(villain), board, samples, 0);
+	}
+
+
+	/**
+	 * Estimates the equity of a hand against a range of hands, each of which is equally likely. Hands of the range
+	 * that share a card with the hero or the board are left out. Stops after the given number of samples or after the
+	 * given time, whichever comes first.
+	 * @param hero : the hand to calculate the equity of
+	 * @param villainRange : the possible opposing hands
+	 * @param board : the zero to five cards on the table, may be null
+	 * @param samples : the number of samples, or 0 for no limit
+	 * @param timeLimit : the time limit in milliseconds, or 0 for no limit
+	 */
+	public EquityResult compute(Hand hero, Collection<Hand> villainRange, Card[] board, long samples, long timeLimit)
+	{
+		if(samples <= 0 && timeLimit <= 0)
+			throw new IllegalArgumentException("A sample budget or a time limit is needed");
+		long deadline = timeLimit > 0 ? System.nanoTime() + timeLimit * 1000000l : 0l;
+
+		long heroMask = CardMasks.of(hero);
+		long boardMask = CardMasks.of(board);
+		long[] villainCombos = CardMasks.liveCombos(villainRange, heroMask | boardMask);
+		if(villainCombos.length == 0)
+			throw new IllegalArgumentException("No hand of the range is possible with the given cards");
+		long[] liveCards = CardMasks.liveCards(heroMask | boardMask);
+		int missingCards = 5 - Long.bitCount(boardMask);
+
+		List<Callable<EquityResult>> tasks = new ArrayList<Callable<EquityResult>>(parallelism);
+		for(int i = 0; i < parallelism; i++)
+		{
+			long taskSamples = samples <= 0 ? 0 : samples / parallelism + (i < samples % parallelism ? 1 : 0);
+			if(samples > 0 && taskSamples == 0)
+				break;
+			long seed;
+			synchronized(seeds)
+			{
+				seed = seeds.nextLong();
+			}
+			tasks.add(new SampleTask(evaluator, heroMask, boardMask, missingCards, villainCombos, liveCards,
+									 taskSamples, deadline, seed));
+		}
+		return EvalThreads.sum(executor, tasks);
+	}
+
+
+	/**
+	 * Samples runouts with its own random generator and counts the outcomes.
+	 */
+	private static class SampleTask implements Callable<EquityResult>
+	{
+		private final Evaluator evaluator;
+		private final long heroMask, boardMask;
+		private final int missingCards;
+		private final long[] villainCombos, liveCards;
+		private final long samples, deadline, seed;
+
+		SampleTask(Evaluator evaluator, long heroMask, long boardMask, int missingCards, long[] villainCombos,
+				   long[] liveCards, long samples, long deadline, long seed)
+		{
+			this.evaluator = evaluator;
+			this.heroMask = heroMask;
+			this.boardMask = boardMask;
+			this.missingCards = missingCards;
+			this.villainCombos = villainCombos;
+			this.liveCards = liveCards;
+			this.samples = samples;
+			this.deadline = deadline;
+			this.seed = seed;
+		}
+
+		@Override
+		public EquityResult call()
+		{
+			Random random = new Random(seed);
+			long wins = 0, ties = 0, losses = 0;
+			for(long n = 0; samples == 0 || n < samples; n++)
+			{
+				if((n & 0xFF) == 0 && deadline != 0 && System.nanoTime() - deadline >= 0)
+					break;
+
+				long villain = villainCombos.length == 1 ? villainCombos[0]
+						: villainCombos[random.nextInt(villainCombos.length)];
+				long used = villain;
+				long board = boardMask;
+				for(int k = 0; k < missingCards;)
+				{
+					long card = liveCards[random.nextInt(liveCards.length)];
+					if((card & used) == 0)
+					{
+						used |= card;
+						board |= card;
+						k++;
+					}
+				}
+
+				int heroValue = evaluator.hand7Eval(heroMask | board);
+				int villainValue = evaluator.hand7Eval(villain | board);
+				if(heroValue > villainValue)
+					wins++;
+				else if(heroValue == villainValue)
+					ties++;
+				else
+					losses++;
+			}
+			return new EquityResult(wins, ties, losses);
+		}
+	}
+}
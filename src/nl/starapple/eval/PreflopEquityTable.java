@@ -0,0 +1,283 @@
+package nl.starapple.eval;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import nl.starapple.poker.Card;
+import nl.starapple.poker.Hand;
+
+/**
+ * Table of the exact preflop equities of the 169 canonical starting hands against each other, kept in a memory-mapped
+ * file. Loading a table only maps the file, so it costs microseconds, and all JVMs that load the same file share one
+ * copy of it through the page cache.
+ * <p>
+ * A starting hand class is indexed in a 13x13 grid by <code>row * 13 + column</code>: pairs are on the diagonal,
+ * suited hands at (high rank, low rank) and offsuit hands at (low rank, high rank), with ranks 0 (deuce) to 12 (ace).
+ * The equity of one class against another is the average equity over all combinations of cards of both classes that
+ * do not share a card, ties counting as half.
+ * <p>
+ * The file holds a header of three ints (magic, version, classes) followed by the 169x169 equities as floats, row by
+ * row, in big-endian byte order. Run {@link #main(String[])} to generate it.
+ */
+public class PreflopEquityTable
+{
+	public static final int CLASSES = 169;
+
+	private static final int MAGIC = 0x48555045;	// "HUPE"
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 12;
+	private static final int FILE_SIZE = HEADER_SIZE + CLASSES * CLASSES * 4;
+	private static final String RANKS = "23456789TJQKA";
+
+	private final MappedByteBuffer buffer;
+
+	private PreflopEquityTable(MappedByteBuffer buffer)
+	{
+		this.buffer = buffer;
+	}
+
+
+	/**
+	 * Maps a table file into memory.
+	 * @param file : a file written by {@link #write(float[], File)}
+	 * @throws IOException if the file cannot be read or is not a table file
+	 */
+	public static PreflopEquityTable load(File file) throws IOException
+	{
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try
+		{
+			if(raf.length() != FILE_SIZE)
+				throw new IOException("Not a preflop equity table: " + file);
+			MappedByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, FILE_SIZE);
+			if(buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION || buffer.getInt(8) != CLASSES)
+				throw new IOException("Not a preflop equity table of version " + VERSION + ": " + file);
+			return new PreflopEquityTable(buffer);
+		}
+		finally
+		{
+			raf.close();	// the mapping stays valid after the file is closed
+		}
+	}
+
+
+	/**
+	 * Returns the equity of a starting hand class against another.
+	 * @param heroClass : the class index of the hand to get the equity of
+	 * @param villainClass : the class index of the opposing hand
+	 */
+	public float getEquity(int heroClass, int villainClass)
+	{
+		return buffer.getFloat(HEADER_SIZE + (heroClass * CLASSES + villainClass) * 4);
+	}
+
+
+	/**
+	 * Returns the equity of the class of a hand against the class of another hand. The result is the average over
+	 * the classes, which differs a little from the equity of these exact cards.
+	 */
+	public float getEquity(Hand hero, Hand villain)
+	{
+		return getEquity(classIndex(hero.getCard1(), hero.getCard2()),
+						 classIndex(villain.getCard1(), villain.getCard2()));
+	}
+
+
+	/**
+	 * Returns the class index of the starting hand made by the two given cards.
+	 */
+	public static int classIndex(Card card1, Card card2)
+	{
+		int rank1 = card1.getHeight().ordinal();
+		int rank2 = card2.getHeight().ordinal();
+		int high = Math.max(rank1, rank2);
+		int low = Math.min(rank1, rank2);
+		if(card1.getSuit() == card2.getSuit())
+			return high * 13 + low;
+		return low * 13 + high;
+	}
+
+
+	/**
+	 * Returns the common name of a starting hand class, like "AA", "AKs" or "T9o".
+	 */
+	public static String className(int classIndex)
+	{
+		int row = classIndex / 13, column = classIndex % 13;
+		if(row == column)
+			return "" + RANKS.charAt(row) + RANKS.charAt(row);
+		if(row > column)
+			return "" + RANKS.charAt(row) + RANKS.charAt(column) + "s";
+		return "" + RANKS.charAt(column) + RANKS.charAt(row) + "o";
+	}
+
+
+	/**
+	 * Computes the equities of all classes against each other with the given enumerator. The equity of the second
+	 * class against the first one is derived from the first against the second. Takes minutes to hours, depending on
+	 * the number of processors.
+	 * @param enumerator : the exact enumerator to use
+	 * @param progress : stream that receives a line for each finished class, may be null
+	 * @return the equities, indexed by <code>heroClass * CLASSES + villainClass</code>
+	 */
+	public static float[] generate(ExactEquity enumerator, PrintStream progress)
+	{
+		float[] table = new float[CLASSES * CLASSES];
+		for(int hero = 0; hero < CLASSES; hero++)
+		{
+			long heroMask = representative(hero);
+			int[] stabilizer = stabilizer(heroMask);
+			for(int villain = hero; villain < CLASSES; villain++)
+			{
+				// Villain hands that are the same up to a suit permutation which keeps the hero hand in place have
+				// the same equity, so only one of each is enumerated, weighted by how many there are.
+				Map<Long, Integer> weights = new LinkedHashMap<Long, Integer>();
+				for(long combo : combos(villain))
+				{
+					if((combo & heroMask) != 0)
+						continue;
+					long canonical = combo;
+					for(int permutation : stabilizer)
+						canonical = Math.min(canonical, permute(combo, permutation));
+					Integer weight = weights.get(canonical);
+					weights.put(canonical, weight == null ? 1 : weight + 1);
+				}
+
+				double equity = 0;
+				int total = 0;
+				for(Map.Entry<Long, Integer> entry : weights.entrySet())
+				{
+					EquityResult result = enumerator.compute(heroMask, new long[] {entry.getKey()}, 0l);
+					equity += result.getEquity() * entry.getValue();
+					total += entry.getValue();
+				}
+				equity /= total;
+				table[hero * CLASSES + villain] = (float) equity;
+				if(villain != hero)
+					table[villain * CLASSES + hero] = (float) (1 - equity);
+			}
+			if(progress != null)
+				progress.printf("%s done (%d/%d)%n", className(hero), hero + 1, CLASSES);
+		}
+		return table;
+	}
+
+
+	/**
+	 * Writes a table of equities, as returned by {@link #generate(ExactEquity, PrintStream)}, to a file.
+	 */
+	public static void write(float[] table, File file) throws IOException
+	{
+		ByteBuffer data = ByteBuffer.allocate(FILE_SIZE);
+		data.putInt(MAGIC).putInt(VERSION).putInt(CLASSES);
+		for(int i = 0; i < CLASSES * CLASSES; i++)
+			data.putFloat(table[i]);
+		data.flip();
+
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try
+		{
+			raf.setLength(0);
+			FileChannel channel = raf.getChannel();
+			while(data.hasRemaining())
+				channel.write(data);
+		}
+		finally
+		{
+			raf.close();
+		}
+	}
+
+
+	/**
+	 * Returns the encodings of all combinations of cards of a class.
+	 */
+	private static long[] combos(int classIndex)
+	{
+		int row = classIndex / 13, column = classIndex % 13;
+		int high = Math.max(row, column), low = Math.min(row, column);
+		long[] combos = new long[row == column ? 6 : row > column ? 4 : 12];
+		int n = 0;
+		for(int suit1 = 0; suit1 < 4; suit1++)
+			for(int suit2 = 0; suit2 < 4; suit2++)
+			{
+				boolean wanted = row == column ? suit1 < suit2 : row > column ? suit1 == suit2 : suit1 != suit2;
+				if(wanted)
+					combos[n++] = card(high, suit1) | card(low, suit2);
+			}
+		return combos;
+	}
+
+
+	/**
+	 * Returns the encoding of one combination of cards of a class.
+	 */
+	private static long representative(int classIndex)
+	{
+		return combos(classIndex)[0];
+	}
+
+
+	private static long card(int rank, int suit)
+	{
+		return 1l << (16 * suit + rank);
+	}
+
+
+	/**
+	 * Returns the suit permutations that map the given hand onto itself. A permutation is packed in an int as four
+	 * 2-bit fields, the target suit of each suit.
+	 */
+	private static int[] stabilizer(long hand)
+	{
+		int[] permutations = new int[24];
+		int n = 0;
+		for(int a = 0; a < 4; a++)
+			for(int b = 0; b < 4; b++)
+				for(int c = 0; c < 4; c++)
+				{
+					int d = 6 - a - b - c;
+					if(a == b || a == c || b == c || d < 0 || d > 3 || d == a || d == b || d == c)
+						continue;
+					int permutation = a | (b << 2) | (c << 4) | (d << 6);
+					if(permute(hand, permutation) == hand)
+						permutations[n++] = permutation;
+				}
+		int[] result = new int[n];
+		System.arraycopy(permutations, 0, result, 0, n);
+		return result;
+	}
+
+
+	private static long permute(long hand, int permutation)
+	{
+		long result = 0l;
+		for(int suit = 0; suit < 4; suit++)
+			result |= ((hand >>> (16 * suit)) & 0x1FFFl) << (16 * ((permutation >>> (2 * suit)) & 3));
+		return result;
+	}
+
+
+	/**
+	 * Generates a table file. Usage: <code>PreflopEquityTable outputFile</code>
+	 */
+	public static void main(String[] args) throws IOException
+	{
+		if(args.length != 1)
+		{
+			System.err.println("Usage: PreflopEquityTable outputFile");
+			return;
+		}
+		long start = System.nanoTime();
+		float[] table = generate(new ExactEquity(Evaluator.LOOKUP, EvalThreads.getExecutor()), System.err);
+		write(table, new File(args[0]));
+		System.err.printf("Wrote %s in %d s%n", args[0], (System.nanoTime() - start) / 1000000000l);
+	}
+}
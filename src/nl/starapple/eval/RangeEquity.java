@@ -0,0 +1,295 @@
+package nl.starapple.eval;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+
+import nl.starapple.poker.Card;
+
+/**
+ * Calculates the equity of a range of hands against another range, for the range as a whole and for each of its
+ * combinations, for example to draw an equity heatmap during a bot's decision.
+ * <p>
+ * Every combination of both ranges is evaluated only once per board. The combinations are then sorted by their value
+ * and swept from low to high while counting, per card, how many opposing combinations with a lower value hold that
+ * card. The wins of a combination are the lower opposing combinations minus the ones that share one of its two cards,
+ * so card conflicts cost two lookups instead of a comparison of every pair of combinations. Combinations that conflict
+ * with the board are removed with bitwise operations on the ranges beforehand.
+ * <p>
+ * On the flop, turn and river all boards are enumerated; preflop, or when there are more boards than the board
+ * budget, random boards are sampled. The boards are split over the threads of the executor.
+ */
+public class RangeEquity
+{
+	/** The default number of boards above which boards are sampled: enough to enumerate every flop. */
+	public static final int DEFAULT_MAX_BOARDS = 2000;
+
+	private final Evaluator evaluator;
+	private final ExecutorService executor;
+	private final int parallelism;
+	private final Random seeds;
+
+	/**
+	 * Creates a calculator that uses {@link Evaluator#BRECHER} and the shared pool of {@link EvalThreads}.
+	 */
+	public RangeEquity()
+	{
+		this(Evaluator.BRECHER, EvalThreads.getExecutor(), EvalThreads.getParallelism(), System.nanoTime());
+	}
+
+
+	/**
+	 * @param evaluator : the evaluator for the showdowns
+	 * @param executor : the executor the board tasks are run on
+	 * @param parallelism : the number of tasks a calculation is split into
+	 * @param seed : the seed from which the seeds of sampling tasks are drawn
+	 */
+	public RangeEquity(Evaluator evaluator, ExecutorService executor, int parallelism, long seed)
+	{
+		this.evaluator = evaluator;
+		this.executor = executor;
+		this.parallelism = Math.max(parallelism, 1);
+		this.seeds = new Random(seed);
+	}
+
+
+	/**
+	 * Returns the equity of a range against another range on the given board, enumerating all boards if there are
+	 * at most {@link #DEFAULT_MAX_BOARDS}.
+	 * @param hero : the range to calculate the equity of
+	 * @param villain : the opposing range
+	 * @param board : the zero to five cards on the table, may be null
+	 */
+	public RangeEquityResult compute(HandRange hero, HandRange villain, Card[] board)
+	{
+		return compute(hero, villain, board, DEFAULT_MAX_BOARDS);
+	}
+
+
+	/**
+	 * Returns the equity of a range against another range on the given board. All combinations of a range are
+	 * equally likely, except that combinations that conflict with the board or with the opposing combination are
+	 * left out.
+	 * @param hero : the range to calculate the equity of
+	 * @param villain : the opposing range
+	 * @param board : the zero to five cards on the table, may be null
+	 * @param maxBoards : the number of boards above which that many random boards are sampled instead
+	 */
+	public RangeEquityResult compute(HandRange hero, HandRange villain, Card[] board, int maxBoards)
+	{
+		long boardMask = CardMasks.of(board);
+		int[] heroCombos = hero.without(boardMask).getCombos();
+		int[] villainCombos = villain.without(boardMask).getCombos();
+		long[] liveCards = CardMasks.liveCards(boardMask);
+		int missingCards = 5 - Long.bitCount(boardMask);
+
+		long boards = 1;
+		for(int i = 0; i < missingCards; i++)
+			boards = boards * (liveCards.length - i) / (i + 1);
+
+		List<Callable<long[][]>> tasks = new ArrayList<Callable<long[][]>>(parallelism);
+		if(boards <= maxBoards)
+		{
+			long[] allBoards = new long[(int) boards];
+			enumerate(allBoards, 0, boardMask, liveCards, 0, missingCards);
+			for(int i = 0; i < parallelism && i < allBoards.length; i++)
+			{
+				int from = (int) ((long) allBoards.length * i / parallelism);
+				int to = (int) ((long) allBoards.length * (i + 1) / parallelism);
+				tasks.add(new BoardTask(evaluator, heroCombos, villainCombos,
+										Arrays.copyOfRange(allBoards, from, to), boardMask, liveCards, 0, 0));
+			}
+		}
+		else
+			for(int i = 0; i < parallelism && i < maxBoards; i++)
+			{
+				int taskBoards = maxBoards / parallelism + (i < maxBoards % parallelism ? 1 : 0);
+				long seed;
+				synchronized(seeds)
+				{
+					seed = seeds.nextLong();
+				}
+				tasks.add(new BoardTask(evaluator, heroCombos, villainCombos, null, boardMask, liveCards,
+										taskBoards, seed));
+			}
+
+		long[] wins = new long[HandRange.COMBOS], ties = new long[HandRange.COMBOS],
+			   totals = new long[HandRange.COMBOS];
+		for(long[][] counts : EvalThreads.run(executor, tasks))
+			for(int combo : heroCombos)
+			{
+				wins[combo] += counts[0][combo];
+				ties[combo] += counts[1][combo];
+				totals[combo] += counts[2][combo];
+			}
+		return new RangeEquityResult(wins, ties, totals);
+	}
+
+
+	/**
+	 * Writes all boards made of the given board and the given number of live cards from the start index on, and
+	 * returns the number of boards written.
+	 */
+	private static int enumerate(long[] boards, int n, long board, long[] liveCards, int start, int cards)
+	{
+		if(cards == 0)
+		{
+			boards[n] = board;
+			return n + 1;
+		}
+		for(int i = start; i <= liveCards.length - cards; i++)
+			n = enumerate(boards, n, board | liveCards[i], liveCards, i + 1, cards - 1);
+		return n;
+	}
+
+
+	/**
+	 * Counts the showdowns of the hero combinations on either a given list of boards or a number of random boards.
+	 * Returns the wins, ties and totals per combination index.
+	 */
+	private static class BoardTask implements Callable<long[][]>
+	{
+		private final Evaluator evaluator;
+		private final int[] heroCombos, villainCombos;
+		private final long[] boards;
+		private final long boardMask;
+		private final long[] liveCards;
+		private final int samples;
+		private final long seed;
+
+		private final long[] wins = new long[HandRange.COMBOS];
+		private final long[] ties = new long[HandRange.COMBOS];
+		private final long[] totals = new long[HandRange.COMBOS];
+
+		// per board: the live combinations sorted by value, packed as value << 12 | side << 11 | position
+		private final long[] sorted;
+		private final int[] villainCardLess = new int[52], villainCardAll = new int[52];
+		private final boolean[] inVillain = new boolean[HandRange.COMBOS];
+
+		BoardTask(Evaluator evaluator, int[] heroCombos, int[] villainCombos, long[] boards, long boardMask,
+				  long[] liveCards, int samples, long seed)
+		{
+			this.evaluator = evaluator;
+			this.heroCombos = heroCombos;
+			this.villainCombos = villainCombos;
+			this.boards = boards;
+			this.boardMask = boardMask;
+			this.liveCards = liveCards;
+			this.samples = samples;
+			this.seed = seed;
+			this.sorted = new long[heroCombos.length + villainCombos.length];
+			for(int combo : villainCombos)
+				inVillain[combo] = true;
+		}
+
+		@Override
+		public long[][] call()
+		{
+			if(boards != null)
+			{
+				for(long board : boards)
+				{
+					if(Thread.currentThread().isInterrupted())
+						break;
+					showdowns(board);
+				}
+			}
+			else
+			{
+				Random random = new Random(seed);
+				int missingCards = 5 - Long.bitCount(boardMask);
+				for(int n = 0; n < samples; n++)
+				{
+					if((n & 0x3F) == 0 && Thread.currentThread().isInterrupted())
+						break;
+					long board = boardMask;
+					for(int k = 0; k < missingCards;)
+					{
+						long card = liveCards[random.nextInt(liveCards.length)];
+						if((card & board) == 0)
+						{
+							board |= card;
+							k++;
+						}
+					}
+					showdowns(board);
+				}
+			}
+			return new long[][] {wins, ties, totals};
+		}
+
+		/**
+		 * Counts the showdowns on one complete board.
+		 */
+		private void showdowns(long board)
+		{
+			long newCards = board & ~boardMask;
+			int n = 0;
+			for(int i = 0; i < heroCombos.length; i++)
+			{
+				int combo = heroCombos[i];
+				if((HandRange.COMBO_MASK[combo] & newCards) == 0)
+					sorted[n++] = (long) evaluator.hand7Eval(HandRange.COMBO_MASK[combo] | board) << 12 | i;
+			}
+			int villainLive = 0;
+			Arrays.fill(villainCardAll, 0);
+			for(int i = 0; i < villainCombos.length; i++)
+			{
+				int combo = villainCombos[i];
+				if((HandRange.COMBO_MASK[combo] & newCards) == 0)
+				{
+					sorted[n++] = (long) evaluator.hand7Eval(HandRange.COMBO_MASK[combo] | board) << 12 | 1 << 11 | i;
+					villainCardAll[HandRange.COMBO_CARD1[combo]]++;
+					villainCardAll[HandRange.COMBO_CARD2[combo]]++;
+					villainLive++;
+				}
+			}
+			Arrays.sort(sorted, 0, n);
+
+			// Sweep groups of equal value. Before a group is added, the counters hold the lower villain combinations;
+			// after, the lower and equal ones. A compatible villain combination shares neither card, and the only one
+			// that shares both is the hero combination itself.
+			Arrays.fill(villainCardLess, 0);
+			int villainLess = 0;
+			int start = 0;
+			while(start < n)
+			{
+				long value = sorted[start] >>> 12;
+				int end = start;
+				while(end < n && sorted[end] >>> 12 == value)
+					end++;
+
+				for(int i = start; i < end; i++)
+					if((sorted[i] & (1 << 11)) == 0)
+					{
+						int combo = heroCombos[(int) (sorted[i] & 0x7FF)];
+						int a = HandRange.COMBO_CARD1[combo], b = HandRange.COMBO_CARD2[combo];
+						wins[combo] += villainLess - villainCardLess[a] - villainCardLess[b];
+						ties[combo] -= villainLess - villainCardLess[a] - villainCardLess[b];
+					}
+				for(int i = start; i < end; i++)
+					if((sorted[i] & (1 << 11)) != 0)
+					{
+						int combo = villainCombos[(int) (sorted[i] & 0x7FF)];
+						villainCardLess[HandRange.COMBO_CARD1[combo]]++;
+						villainCardLess[HandRange.COMBO_CARD2[combo]]++;
+						villainLess++;
+					}
+				for(int i = start; i < end; i++)
+					if((sorted[i] & (1 << 11)) == 0)
+					{
+						int combo = heroCombos[(int) (sorted[i] & 0x7FF)];
+						int a = HandRange.COMBO_CARD1[combo], b = HandRange.COMBO_CARD2[combo];
+						int self = inVillain[combo] ? 1 : 0;
+						// combinations up to an equal value, minus the lower ones subtracted above, are the ties
+						ties[combo] += villainLess - villainCardLess[a] - villainCardLess[b] + self;
+						totals[combo] += villainLive - villainCardAll[a] - villainCardAll[b] + self;
+					}
+				start = end;
+			}
+		}
+	}
+}
@@ -0,0 +1,103 @@
+package nl.starapple.eval;
+
+import nl.starapple.poker.Hand;
+
+/**
+ * The outcome of a range against range equity calculation: for every combination of the hero range the showdowns it
+ * won, tied and lost against the compatible combinations of the opposing range.
+ */
+public class RangeEquityResult
+{
+	private final long[] wins;
+	private final long[] ties;
+	private final long[] totals;
+
+	/**
+	 * @param wins : per combination index, the won showdowns
+	 * @param ties : per combination index, the tied showdowns
+	 * @param totals : per combination index, all showdowns
+	 */
+	RangeEquityResult(long[] wins, long[] ties, long[] totals)
+	{
+		this.wins = wins;
+		this.ties = ties;
+		this.totals = totals;
+	}
+
+
+	/**
+	 * Returns the outcome of the hero range as a whole: every showdown of every combination counts once.
+	 */
+	public EquityResult getResult()
+	{
+		long win = 0, tie = 0, total = 0;
+		for(int combo = 0; combo < HandRange.COMBOS; combo++)
+		{
+			win += wins[combo];
+			tie += ties[combo];
+			total += totals[combo];
+		}
+		return new EquityResult(win, tie, total - win - tie);
+	}
+
+
+	/**
+	 * Returns the outcome of the combination with the given index; no showdowns if it is not in the hero range.
+	 */
+	public EquityResult getResult(int combo)
+	{
+		return new EquityResult(wins[combo], ties[combo], totals[combo] - wins[combo] - ties[combo]);
+	}
+
+
+	/**
+	 * Returns the equity of the hero range as a whole.
+	 */
+	public double getEquity()
+	{
+		return getResult().getEquity();
+	}
+
+
+	/**
+	 * Returns the equity of the combination of the given hand, or 0 if it is not in the hero range.
+	 */
+	public double getEquity(Hand hand)
+	{
+		return getResult(HandRange.comboIndex(hand)).getEquity();
+	}
+
+
+	/**
+	 * Returns the equities of the 169 starting hand classes, for a heatmap of the range, indexed like
+	 * {@link PreflopEquityTable#classIndex}. A class holds the showdowns of all its combinations in the hero range;
+	 * classes without any are NaN.
+	 */
+	public double[] getClassEquities()
+	{
+		double[] share = new double[PreflopEquityTable.CLASSES];
+		long[] classTotals = new long[PreflopEquityTable.CLASSES];
+		for(int combo = 0; combo < HandRange.COMBOS; combo++)
+		{
+			if(totals[combo] == 0)
+				continue;
+			int card1 = HandRange.COMBO_CARD1[combo], card2 = HandRange.COMBO_CARD2[combo];
+			int high = Math.max(card1 % 13, card2 % 13), low = Math.min(card1 % 13, card2 % 13);
+			int classIndex = card1 / 13 == card2 / 13 ? high * 13 + low : low * 13 + high;
+			share[classIndex] += wins[combo] + ties[combo] / 2.0;
+			classTotals[classIndex] += totals[combo];
+		}
+		for(int classIndex = 0; classIndex < share.length; classIndex++)
+			share[classIndex] = classTotals[classIndex] == 0 ? Double.NaN : share[classIndex] / classTotals[classIndex];
+		return share;
+	}
+
+
+	/**
+	 * Returns a String representation of this result.
+	 */
+	public String toString()
+	{
+		return getResult().toString();
+	}
+}
@@ -0,0 +1,207 @@
+package nl.starapple.eval;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.stevebrecher.HandEval;
+
+/**
+ * Minimal perfect hash table from the rank pattern of a hand without a flush to its HandEval value.
+ * <p>
+ * A rank pattern is the number of cards (0 to 4) of each of the 13 ranks. It is keyed by the base-5 number with one
+ * digit per rank, which is the sum of the {@link #QUINARY} values of the four suit fields of a hand, and therefore
+ * costs four table loads to compute. The keys are mapped to slots with the hash-and-displace scheme: a first hash
+ * selects a bucket, and the displacement stored for that bucket moves a second hash to a slot that no other key uses.
+ * A lookup thus does two multiplicative hashes and two array loads, without any comparisons.
+ */
+class RankPatternTable
+{
+	/** Sum of 5^rank over the rank bits of a 13-bit suit field. */
+	static final int[] QUINARY = new int[0x2000];
+
+	static
+	{
+		int[] powers = new int[13];
+		powers[0] = 1;
+		for(int rank = 1; rank < 13; rank++)
+			powers[rank] = powers[rank - 1] * 5;
+		for(int mask = 1; mask < QUINARY.length; mask++)
+		{
+			int low = Integer.numberOfTrailingZeros(mask);
+			QUINARY[mask] = QUINARY[mask & (mask - 1)] + powers[low];
+		}
+	}
+
+	private final int bucketShift;
+	private final int slotShift;
+	private final int seed;
+	private final int[] displacements;
+	private final int[] values;
+
+	/**
+	 * Builds the table of all rank patterns of the given number of cards. The value of each pattern is computed by
+	 * HandEval on a hand with that pattern whose suits are dealt round robin, so that it contains no flush.
+	 * @param cards : the number of cards of the hands, 5 to 7
+	 */
+	RankPatternTable(int cards)
+	{
+		List<int[]> patterns = new ArrayList<int[]>();
+		collectPatterns(new int[13], 0, cards, patterns);
+
+		int n = patterns.size();
+		int[] keys = new int[n];
+		int[] patternValues = new int[n];
+		for(int i = 0; i < n; i++)
+		{
+			int[] counts = patterns.get(i);
+			long hand = 0l;
+			int key = 0, card = 0;
+			for(int rank = 12; rank >= 0; rank--)
+			{
+				key = key * 5 + counts[rank];
+				for(int j = 0; j < counts[rank]; j++, card++)
+					hand |= 1l << (16 * (card & 3) + rank);
+			}
+			keys[i] = key;
+			patternValues[i] = evaluate(hand, cards);
+		}
+
+		int slotBits = 32 - Integer.numberOfLeadingZeros(n + n / 3);
+		int bucketBits = Math.max(slotBits - 2, 1);
+		slotShift = 32 - slotBits;
+		bucketShift = 32 - bucketBits;
+		displacements = new int[1 << bucketBits];
+		values = new int[1 << slotBits];
+
+		int trySeed = 0x9E3779B9;
+		while(!build(keys, patternValues, trySeed))
+			trySeed = mix(trySeed + 0x632BE5AB);
+		seed = trySeed;
+	}
+
+
+	/**
+	 * Returns the value of the pattern with the given base-5 key. The result is undefined for keys of patterns with a
+	 * different number of cards than the table was built for.
+	 */
+	int get(int key)
+	{
+		int hash = (key ^ seed) * 0x85EBCA6B;
+		int slot = ((hash ^ (hash >>> 15)) * 0xC2B2AE35) >>> slotShift;
+		return values[slot ^ displacements[hash >>> bucketShift]];
+	}
+
+
+	/**
+	 * Tries to place all keys with the given seed. Buckets are placed largest first, each with the lowest
+	 * displacement that moves all of its keys to free slots.
+	 */
+	private boolean build(int[] keys, int[] patternValues, int trySeed)
+	{
+		int bucketCount = displacements.length;
+		int slotCount = values.length;
+		int[] bucketSizes = new int[bucketCount];
+		int[] keyBuckets = new int[keys.length];
+		int[] keySlots = new int[keys.length];
+		for(int i = 0; i < keys.length; i++)
+		{
+			int hash = (keys[i] ^ trySeed) * 0x85EBCA6B;
+			keyBuckets[i] = hash >>> bucketShift;
+			keySlots[i] = ((hash ^ (hash >>> 15)) * 0xC2B2AE35) >>> slotShift;
+			bucketSizes[keyBuckets[i]]++;
+		}
+
+		// group the keys per bucket, and order the buckets by decreasing size
+		int[] bucketStart = new int[bucketCount + 1];
+		for(int b = 0; b < bucketCount; b++)
+			bucketStart[b + 1] = bucketStart[b] + bucketSizes[b];
+		int[] fill = Arrays.copyOf(bucketStart, bucketCount);
+		int[] bucketKeys = new int[keys.length];
+		for(int i = 0; i < keys.length; i++)
+			bucketKeys[fill[keyBuckets[i]]++] = i;
+		long[] order = new long[bucketCount];
+		for(int b = 0; b < bucketCount; b++)
+			order[b] = ((long) (keys.length - bucketSizes[b]) << 32) | b;
+		Arrays.sort(order);
+
+		boolean[] used = new boolean[slotCount];
+		Arrays.fill(displacements, 0);
+		for(int o = 0; o < bucketCount; o++)
+		{
+			int b = (int) order[o];
+			if(bucketSizes[b] == 0)
+				break;
+			int displacement = 0;
+			for(; displacement < slotCount; displacement++)
+			{
+				boolean fits = true;
+				for(int k = bucketStart[b]; k < bucketStart[b + 1] && fits; k++)
+				{
+					int slot = keySlots[bucketKeys[k]] ^ displacement;
+					if(used[slot])
+						fits = false;
+					for(int l = bucketStart[b]; l < k && fits; l++)
+						if((keySlots[bucketKeys[l]] ^ displacement) == slot)
+							fits = false;
+				}
+				if(fits)
+					break;
+			}
+			if(displacement == slotCount)
+				return false;
+			displacements[b] = displacement;
+			for(int k = bucketStart[b]; k < bucketStart[b + 1]; k++)
+			{
+				int slot = keySlots[bucketKeys[k]] ^ displacement;
+				used[slot] = true;
+				values[slot] = patternValues[bucketKeys[k]];
+			}
+		}
+		return true;
+	}
+
+
+	private static int mix(int x)
+	{
+		x ^= x >>> 16;
+		x *= 0x85EBCA6B;
+		x ^= x >>> 13;
+		x *= 0xC2B2AE35;
+		return x ^ (x >>> 16);
+	}
+
+
+	/**
+	 * Adds all rank patterns with the given number of remaining cards over the ranks from the given one upwards.
+	 */
+	private static void collectPatterns(int[] counts, int rank, int remaining, List<int[]> patterns)
+	{
+		if(rank == 13)
+		{
+			if(remaining == 0)
+				patterns.add(counts.clone());
+			return;
+		}
+		for(int count = 0; count <= Math.min(4, remaining); count++)
+		{
+			counts[rank] = count;
+			collectPatterns(counts, rank + 1, remaining - count, patterns);
+		}
+		counts[rank] = 0;
+	}
+
+
+	/**
+	 * Evaluates a hand of the given number of cards with the matching HandEval method.
+	 */
+	static int evaluate(long hand, int cards)
+	{
+		switch(cards)
+		{
+			case 5 : return HandEval.hand5Eval(hand);
+			case 6 : return HandEval.hand6Eval(hand);
+			default : return HandEval.hand7Eval(hand);
+		}
+	}
+}
@@ -0,0 +1,156 @@
+package nl.starapple.history;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+/**
+ * Hand history sink that appends the hands into a buffer and leaves the writing to a background thread. The game loop
+ * only copies the text of a hand into the buffer; the writer thread swaps the filled buffer for an empty one and
+ * writes the whole batch at once, so a slow console or disk never blocks the match. The buffer grows as needed when
+ * the writer falls behind.
+ */
+public class AsyncHistorySink implements HandHistorySink
+{
+	private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+	
+	private final Writer out;
+	private final boolean closeOut;
+	private final Thread writerThread;
+	private final Object lock = new Object();
+	private StringBuilder pending = new StringBuilder(1 << 16);
+	private StringBuilder writing = new StringBuilder(1 << 16);
+	private boolean busy;		// whether the writer thread is writing a batch
+	private boolean closed;
+	
+	
+	/**
+	 * Creates a sink that writes to the standard out channel, which stays open when the sink is closed.
+	 */
+	public AsyncHistorySink()
+	{
+		this(System.out, false);
+	}
+	
+	
+	/**
+	 * Creates a sink that writes to the given stream, in the default character encoding like a PrintStream.
+	 * @param stream : the stream to write to
+	 * @param closeStream : whether closing the sink closes the stream
+	 */
+	public AsyncHistorySink(OutputStream stream, boolean closeStream)
+	{
+		out = new BufferedWriter(new OutputStreamWriter(stream), 1 << 16);
+		closeOut = closeStream && !(stream == System.out || stream == System.err);
+		writerThread = new Thread(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				writeBatches();
+			}
+		}, "history-writer");
+		writerThread.setDaemon(true);
+		writerThread.start();
+	}
+	
+	
+	@Override
+	public void writeHand(CharSequence hand)
+	{
+		synchronized(lock)
+		{
+			if(closed)
+				throw new IllegalStateException("The history sink is closed");
+			pending.append(hand).append(LINE_SEPARATOR);
+			lock.notifyAll();
+		}
+	}
+	
+	
+	@Override
+	public void flush()
+	{
+		synchronized(lock)
+		{
+			while((pending.length() > 0 || busy) && writerThread.isAlive())
+			{
+				try { lock.wait(); }
+				catch(InterruptedException e) { Thread.currentThread().interrupt(); return; }
+			}
+		}
+	}
+	
+	
+	@Override
+	public void close()
+	{
+		synchronized(lock)
+		{
+			if(closed)
+				return;
+			closed = true;
+			lock.notifyAll();
+		}
+		try
+		{
+			writerThread.join();
+		}
+		catch(InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+		try
+		{
+			if(closeOut)
+				out.close();
+			else
+				out.flush();
+		}
+		catch(IOException e)
+		{
+			e.printStackTrace();
+		}
+	}
+	
+	
+	/**
+	 * Body of the writer thread: waits for hands, then writes everything that is pending in one go.
+	 */
+	private void writeBatches()
+	{
+		while(true)
+		{
+			synchronized(lock)
+			{
+				busy = false;
+				lock.notifyAll();
+				while(pending.length() == 0 && !closed)
+				{
+					try { lock.wait(); }
+					catch(InterruptedException e) { return; }
+				}
+				if(pending.length() == 0)
+					return;
+				StringBuilder batch = pending;
+				pending = writing;
+				writing = batch;
+				busy = true;
+			}
+			try
+			{
+				out.append(writing);
+				out.flush();
+			}
+			catch(IOException e)
+			{
+				e.printStackTrace();
+			}
+			writing.setLength(0);
+			if(writing.capacity() > (1 << 22))
+				writing = new StringBuilder(1 << 16);	// do not keep a buffer that grew during a backlog
+		}
+	}
+}
@@ -0,0 +1,110 @@
+package nl.starapple.history;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Constants and primitives of the binary hand history format.
+ * <p>
+ * A binary history starts with a header of the four magic bytes "SAHH" and a version byte, followed by one record per
+ * hand. A record is its length as a varint followed by that many bytes of operations. Every record is self-contained:
+ * it defines the bot names it uses, so a record can be decoded without the ones before it.
+ * <p>
+ * Each operation is one byte followed by its arguments and stands for one line of the text history. Numbers are
+ * zigzag varints, cards are bytes with the card number used by {@link nl.starapple.poker.Card}, names are varint ids
+ * of earlier NAME operations of the same record, and strings are a varint length followed by UTF-8 bytes. A line that
+ * does not exactly fit any operation is stored as RAW text, so decoding always reproduces the text byte for byte.
+ */
+public final class BinaryHistoryFormat
+{
+	private BinaryHistoryFormat() {}	// no instances
+
+	public static final byte[] MAGIC = {'S', 'A', 'H', 'H'};
+	public static final int VERSION = 1;
+
+	/* Operations, with their arguments. */
+	static final int RAW = 0;			// string: the line as text
+	static final int NAME = 1;			// string: defines the next name id
+	static final int HAND_START = 2;	// number: "Match hand N"
+	static final int STACK = 3;			// name, number: "<name> stack N"
+	static final int POST = 4;			// name, number: "<name> post N"
+	static final int HOLE = 5;			// name, count, cards: "<name> hand [c,c]"
+	static final int CHECK = 6;			// name, number: "<name> check N"
+	static final int CALL = 7;			// name, number: "<name> call N"
+	static final int RAISE = 8;			// name, number: "<name> raise N"
+	static final int FOLD = 9;			// name, number: "<name> fold N"
+	static final int POT = 10;			// number: "Match pot N"
+	static final int SIDEPOT = 11;		// number, number: "Match sidepotK N"
+	static final int TABLE = 12;		// count, cards: "Match table [c,c,c]"
+	static final int RESULT = 13;		// number K (0 for the main pot), count, (name, number)*: "Result pot [n:N,...]"
+
+	/** The action words of CHECK to FOLD, in the order of their operations. */
+	static final String[] ACTIONS = {"check", "call", "raise", "fold"};
+
+
+	/**
+	 * Writes the header of a binary history.
+	 */
+	public static void writeHeader(OutputStream out) throws IOException
+	{
+		out.write(MAGIC);
+		out.write(VERSION);
+	}
+
+
+	/**
+	 * Reads and checks the header of a binary history.
+	 * @throws IOException if the stream does not start with the header of a supported version
+	 */
+	public static void readHeader(InputStream in) throws IOException
+	{
+		byte[] header = new byte[MAGIC.length + 1];
+		new DataInputStream(in).readFully(header);
+		for(int i = 0; i < MAGIC.length; i++)
+			if(header[i] != MAGIC[i])
+				throw new IOException("Not a binary hand history");
+		if(header[MAGIC.length] != VERSION)
+			throw new IOException("Unsupported binary hand history version " + header[MAGIC.length]);
+	}
+
+
+	/**
+	 * Reads an unsigned varint from a stream.
+	 * @return the value, or -1 at the end of the stream before the first byte
+	 */
+	static int readLength(InputStream in) throws IOException
+	{
+		int value = 0;
+		for(int shift = 0; shift < 35; shift += 7)
+		{
+			int b = in.read();
+			if(b < 0)
+			{
+				if(shift == 0)
+					return -1;
+				throw new EOFException("Truncated record length");
+			}
+			value |= (b & 0x7F) << shift;
+			if((b & 0x80) == 0)
+				return value;
+		}
+		throw new IOException("Malformed record length");
+	}
+
+
+	/**
+	 * Writes an unsigned varint to a stream.
+	 */
+	static void writeLength(OutputStream out, int value) throws IOException
+	{
+		while((value & ~0x7F) != 0)
+		{
+			out.write((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.write(value);
+	}
+}
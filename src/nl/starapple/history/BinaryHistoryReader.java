@@ -0,0 +1,110 @@
+package nl.starapple.history;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Streaming reader of a binary hand history, as written by {@link BinaryHistorySink}. Only one record is held in
+ * memory at a time, so histories of any size can be read.
+ */
+public class BinaryHistoryReader
+{
+	private final InputStream in;
+	private final HandRecordDecoder decoder = new HandRecordDecoder();
+	private byte[] record = new byte[1024];
+	private int recordLength = -1;
+
+
+	/**
+	 * Creates a reader of the given stream and reads the header.
+	 * @throws IOException if the stream does not start with the header of a supported version
+	 */
+	public BinaryHistoryReader(InputStream stream) throws IOException
+	{
+		in = new BufferedInputStream(stream, 1 << 16);
+		BinaryHistoryFormat.readHeader(in);
+	}
+
+
+	/**
+	 * Reads the next record.
+	 * @return whether there was a next record; false at the end of the history
+	 * @throws IOException if the stream ends within a record
+	 */
+	public boolean nextRecord() throws IOException
+	{
+		int length = BinaryHistoryFormat.readLength(in);
+		if(length < 0)
+		{
+			recordLength = -1;
+			return false;
+		}
+		if(length > record.length)
+			record = new byte[Math.max(length, record.length * 2)];
+		for(int read = 0; read < length; )
+		{
+			int n = in.read(record, read, length - read);
+			if(n < 0)
+				throw new EOFException("Truncated hand record");
+			read += n;
+		}
+		recordLength = length;
+		return true;
+	}
+
+
+	/**
+	 * Returns the buffer holding the current record, which is valid up to {@link #getRecordLength()} until the next
+	 * record is read.
+	 */
+	public byte[] getRecord()
+	{
+		return record;
+	}
+
+
+	/**
+	 * Returns the length of the current record, or -1 if there is none.
+	 */
+	public int getRecordLength()
+	{
+		return recordLength;
+	}
+
+
+	/**
+	 * Appends the text of the current record to the given builder, without a line separator at the end.
+	 * @throws IOException if the record is malformed
+	 */
+	public void appendHand(StringBuilder out) throws IOException
+	{
+		if(recordLength < 0)
+			throw new IllegalStateException("No current record");
+		decoder.decode(record, 0, recordLength, out);
+	}
+
+
+	/**
+	 * Reads the next record and returns its text, without a line separator at the end.
+	 * @return the text of the hand, or null at the end of the history
+	 */
+	public String nextHand() throws IOException
+	{
+		if(!nextRecord())
+			return null;
+		StringBuilder hand = new StringBuilder(512);
+		appendHand(hand);
+		return hand.toString();
+	}
+
+
+	/**
+	 * Closes the underlying stream.
+	 */
+	public void close() throws IOException
+	{
+		in.close();
+	}
+}
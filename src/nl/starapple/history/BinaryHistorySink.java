@@ -0,0 +1,76 @@
+package nl.starapple.history;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Hand history sink that writes the binary format described by {@link BinaryHistoryFormat}. Each hand is encoded on
+ * the calling thread into a reused buffer and copied into a large output buffer; the stream is only written when that
+ * buffer is full, which with records of some tens of bytes per hand happens once every few thousand hands.
+ */
+public class BinaryHistorySink implements HandHistorySink
+{
+	private final OutputStream out;
+	private final HandRecordEncoder encoder = new HandRecordEncoder();
+	private boolean closed;
+
+
+	/**
+	 * Creates a sink that writes to the given stream, starting with the header. Closing the sink closes the stream.
+	 * @throws IOException if the header cannot be written
+	 */
+	public BinaryHistorySink(OutputStream stream) throws IOException
+	{
+		out = new BufferedOutputStream(stream, 1 << 16);
+		BinaryHistoryFormat.writeHeader(out);
+	}
+
+
+	@Override
+	public synchronized void writeHand(CharSequence hand)
+	{
+		if(closed)
+			throw new IllegalStateException("The history sink is closed");
+		encoder.encode(hand);
+		try
+		{
+			encoder.writeRecord(out);
+		}
+		catch(IOException e)
+		{
+			e.printStackTrace();
+		}
+	}
+
+
+	@Override
+	public synchronized void flush()
+	{
+		try
+		{
+			out.flush();
+		}
+		catch(IOException e)
+		{
+			e.printStackTrace();
+		}
+	}
+
+
+	@Override
+	public synchronized void close()
+	{
+		if(closed)
+			return;
+		closed = true;
+		try
+		{
+			out.close();
+		}
+		catch(IOException e)
+		{
+			e.printStackTrace();
+		}
+	}
+}
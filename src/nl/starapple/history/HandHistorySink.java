@@ -0,0 +1,25 @@
+package nl.starapple.history;
+
+/**
+ * Destination of the hand histories of a match. The engine builds the history of each hand in a reusable buffer and
+ * passes it to the sink when the hand is finished; the sink takes over the text before writeHand returns, so the
+ * engine can reuse its buffer right away. Implementations should not make the game loop wait for the actual writing.
+ */
+public interface HandHistorySink
+{
+	/**
+	 * Writes the history of one hand, followed by a line separator, like System.out.println would.
+	 * @param hand : the text of the hand; must not be kept after this method returns
+	 */
+	public void writeHand(CharSequence hand);
+	
+	/**
+	 * Waits until all hands written so far are written to the destination.
+	 */
+	public void flush();
+	
+	/**
+	 * Flushes the sink and releases its resources. No hands can be written afterwards.
+	 */
+	public void close();
+}
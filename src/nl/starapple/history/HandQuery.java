@@ -0,0 +1,79 @@
+package nl.starapple.history;
+
+/**
+ * Selection of hands from a {@link HandStore}. All conditions that are set must hold; a new query selects every hand.
+ * The setters return the query, so that a query can be written as one expression, for instance all showdowns where
+ * bot X lost more than 500 chips:
+ * <pre>
+ * new HandQuery().setBot("X").setShowdown(true).setNetRange(Integer.MIN_VALUE, -501)
+ * </pre>
+ */
+public class HandQuery
+{
+	int matchId = -1;
+	String bot;
+	int showdown = -1;		// -1 for any, 0 for no showdown, 1 for showdown
+	int minPot = Integer.MIN_VALUE;
+	int maxPot = Integer.MAX_VALUE;
+	int minNet = Integer.MIN_VALUE;
+	int maxNet = Integer.MAX_VALUE;
+
+
+	/**
+	 * Selects the hands of one match.
+	 * @param matchId : the id the store gave the match
+	 */
+	public HandQuery setMatch(int matchId)
+	{
+		this.matchId = matchId;
+		return this;
+	}
+
+
+	/**
+	 * Selects the hands a bot played in; the net range applies to this bot.
+	 * @param name : the name of the bot
+	 */
+	public HandQuery setBot(String name)
+	{
+		bot = name;
+		return this;
+	}
+
+
+	/**
+	 * Selects the hands that did or did not go to a showdown.
+	 */
+	public HandQuery setShowdown(boolean showdown)
+	{
+		this.showdown = showdown ? 1 : 0;
+		return this;
+	}
+
+
+	/**
+	 * Selects the hands where the chips paid out from all pots lie in a range.
+	 * @param min : the lowest total, inclusive
+	 * @param max : the highest total, inclusive
+	 */
+	public HandQuery setPotRange(int min, int max)
+	{
+		minPot = min;
+		maxPot = max;
+		return this;
+	}
+
+
+	/**
+	 * Selects the hands where the net result of the bot set by {@link #setBot(String)} lies in a range; without a bot,
+	 * the hands where the result of any of its bots does.
+	 * @param min : the lowest result, inclusive
+	 * @param max : the highest result, inclusive
+	 */
+	public HandQuery setNetRange(int min, int max)
+	{
+		minNet = min;
+		maxNet = max;
+		return this;
+	}
+}
@@ -0,0 +1,283 @@
+package nl.starapple.history;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+import nl.starapple.poker.Card;
+
+import static nl.starapple.history.BinaryHistoryFormat.*;
+
+/**
+ * Decodes records of the binary format described by {@link BinaryHistoryFormat} back into the text history of a hand.
+ * Not thread-safe; use one decoder per thread.
+ */
+public class HandRecordDecoder
+{
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private byte[] data;
+	private int position;
+	private int end;
+	private final List<String> names = new ArrayList<String>();
+
+
+	/**
+	 * Appends the text of the hand in a record to the given builder, lines separated by '\n', without a line
+	 * separator at the end.
+	 * @param record : the bytes holding the record
+	 * @param offset : the start of the record
+	 * @param length : the length of the record
+	 * @param out : the builder to append the text to
+	 * @throws IOException if the record is malformed
+	 */
+	public void decode(byte[] record, int offset, int length, StringBuilder out) throws IOException
+	{
+		data = record;
+		position = offset;
+		end = offset + length;
+		names.clear();
+		boolean firstLine = true;
+		try
+		{
+			while(position < end)
+			{
+				int op = readByte();
+				if(op == NAME)
+				{
+					names.add(readString());
+					continue;
+				}
+				if(!firstLine)
+					out.append('\n');
+				firstLine = false;
+				decodeLine(op, out);
+			}
+		}
+		finally
+		{
+			data = null;
+		}
+	}
+
+
+	/**
+	 * Collects the facts of the hand in a record without building its text.
+	 * @param record : the bytes holding the record
+	 * @param offset : the start of the record
+	 * @param length : the length of the record
+	 * @param summary : the summary to fill in; its previous contents are discarded
+	 * @throws IOException if the record is malformed
+	 */
+	public void summarize(byte[] record, int offset, int length, HandSummary summary) throws IOException
+	{
+		data = record;
+		position = offset;
+		end = offset + length;
+		names.clear();
+		summary.reset();
+		try
+		{
+			while(position < end)
+			{
+				int op = readByte();
+				switch(op)
+				{
+					case NAME:
+						String name = readString();
+						names.add(name);
+						summary.addName(name);
+						break;
+					case RAW:
+						skip(readCount());
+						break;
+					case HAND_START:
+						summary.setHandNumber(readNumber());
+						break;
+					case STACK:
+						readName();
+						readNumber();
+						break;
+					case HOLE:
+						readName();
+						skip(readCount());
+						summary.dealt();
+						break;
+					case FOLD:
+						summary.folded();
+						summary.bet(readNameId(), readNumber());
+						break;
+					case POST:
+					case CHECK:
+					case CALL:
+					case RAISE:
+						summary.bet(readNameId(), readNumber());
+						break;
+					case POT:
+						readNumber();
+						break;
+					case SIDEPOT:
+						readNumber();
+						readNumber();
+						break;
+					case TABLE:
+						skip(readCount());
+						summary.nextRound();
+						break;
+					case RESULT:
+						readNumber();
+						int winners = readCount();
+						for(int i = 0; i < winners; i++)
+						{
+							int winner = readNameId();
+							summary.won(winner, readNumber());
+						}
+						break;
+					default:
+						throw new IOException("Unknown operation " + op + " in hand record");
+				}
+			}
+		}
+		finally
+		{
+			data = null;
+		}
+	}
+
+
+	private void decodeLine(int op, StringBuilder out) throws IOException
+	{
+		switch(op)
+		{
+			case RAW:
+				out.append(readString());
+				break;
+			case HAND_START:
+				out.append("Match hand ").append(readNumber());
+				break;
+			case STACK:
+				out.append(readName()).append(" stack ").append(readNumber());
+				break;
+			case POST:
+				out.append(readName()).append(" post ").append(readNumber());
+				break;
+			case HOLE:
+				out.append(readName()).append(" hand ");
+				readCards(out);
+				break;
+			case CHECK:
+			case CALL:
+			case RAISE:
+			case FOLD:
+				out.append(readName()).append(' ').append(ACTIONS[op - CHECK]).append(' ').append(readNumber());
+				break;
+			case POT:
+				out.append("Match pot ").append(readNumber());
+				break;
+			case SIDEPOT:
+				out.append("Match sidepot").append(readNumber()).append(' ').append(readNumber());
+				break;
+			case TABLE:
+				out.append("Match table ");
+				readCards(out);
+				break;
+			case RESULT:
+				int index = readNumber();
+				if(index == 0)
+					out.append("Result pot [");
+				else
+					out.append("Result sidepot").append(index).append(" [");
+				int winners = readCount();
+				for(int i = 0; i < winners; i++)
+					out.append(i > 0 ? "," : "").append(readName()).append(':').append(readNumber());
+				out.append(']');
+				break;
+			default:
+				throw new IOException("Unknown operation " + op + " in hand record");
+		}
+	}
+
+
+	private void readCards(StringBuilder out) throws IOException
+	{
+		int count = readCount();
+		out.append('[');
+		for(int i = 0; i < count; i++)
+		{
+			int card = readByte();
+			if(card >= 52)
+				throw new IOException("Invalid card " + card + " in hand record");
+			out.append(i > 0 ? "," : "").append(Card.getCard(card));
+		}
+		out.append(']');
+	}
+
+
+	private String readName() throws IOException
+	{
+		return names.get(readNameId());
+	}
+
+
+	private int readNameId() throws IOException
+	{
+		int id = readNumber();
+		if(id < 0 || id >= names.size())
+			throw new IOException("Undefined name " + id + " in hand record");
+		return id;
+	}
+
+
+	private String readString() throws IOException
+	{
+		int length = readCount();
+		if(length > end - position)
+			throw new IOException("Truncated hand record");
+		String string = new String(data, position, length, UTF8);
+		position += length;
+		return string;
+	}
+
+
+	private void skip(int bytes) throws IOException
+	{
+		if(bytes > end - position)
+			throw new IOException("Truncated hand record");
+		position += bytes;
+	}
+
+
+	private int readCount() throws IOException
+	{
+		int count = readNumber();
+		if(count < 0)
+			throw new IOException("Negative count in hand record");
+		return count;
+	}
+
+
+	/**
+	 * Reads a zigzag varint.
+	 */
+	private int readNumber() throws IOException
+	{
+		int zigzag = 0;
+		for(int shift = 0; shift < 35; shift += 7)
+		{
+			int b = readByte();
+			zigzag |= (b & 0x7F) << shift;
+			if((b & 0x80) == 0)
+				return (zigzag >>> 1) ^ -(zigzag & 1);
+		}
+		throw new IOException("Malformed number in hand record");
+	}
+
+
+	private int readByte() throws IOException
+	{
+		if(position >= end)
+			throw new IOException("Truncated hand record");
+		return data[position++] & 0xFF;
+	}
+}
@@ -0,0 +1,353 @@
+package nl.starapple.history;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import nl.starapple.poker.Card;
+
+import static nl.starapple.history.BinaryHistoryFormat.*;
+
+/**
+ * Encodes the text history of a hand into a record of the binary format described by {@link BinaryHistoryFormat}.
+ * Every line is parsed into an operation, which is formatted back and compared with the line; lines that would not be
+ * reproduced exactly are stored as text. The buffer is reused for every hand. Not thread-safe.
+ */
+public class HandRecordEncoder
+{
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private byte[] buffer = new byte[1024];
+	private int size;
+	private final Map<String, Integer> nameIds = new HashMap<String, Integer>();
+	private final List<String> lineNames = new ArrayList<String>();	// names first defined by the current line
+	private final StringBuilder check = new StringBuilder();
+
+
+	/**
+	 * Encodes the text of one hand, replacing the previous record in the buffer.
+	 * @param hand : the text of the hand, lines separated by '\n', without a line separator at the end
+	 * @return the length of the record
+	 */
+	public int encode(CharSequence hand)
+	{
+		size = 0;
+		nameIds.clear();
+		int start = 0;
+		int length = hand.length();
+		while(true)
+		{
+			int end = start;
+			while(end < length && hand.charAt(end) != '\n')
+				end++;
+			encodeLine(hand.subSequence(start, end).toString());
+			if(end == length)
+				break;
+			start = end + 1;
+		}
+		return size;
+	}
+
+
+	/**
+	 * Returns the buffer holding the last record, which is valid up to {@link #getLength()}.
+	 */
+	public byte[] getBuffer()
+	{
+		return buffer;
+	}
+
+
+	/**
+	 * Returns the length of the last record.
+	 */
+	public int getLength()
+	{
+		return size;
+	}
+
+
+	/**
+	 * Writes the last record to a stream, preceded by its length.
+	 */
+	public void writeRecord(OutputStream out) throws IOException
+	{
+		writeLength(out, size);
+		out.write(buffer, 0, size);
+	}
+
+
+	private void encodeLine(String line)
+	{
+		int mark = size;
+		lineNames.clear();
+		if(!tryEncode(line))
+		{
+			// undo a partial operation and the names it defined
+			size = mark;
+			for(String name : lineNames)
+				nameIds.remove(name);
+			writeByte(RAW);
+			writeString(line);
+		}
+	}
+
+
+	/**
+	 * Encodes a line as a structured operation if that reproduces it exactly.
+	 */
+	private boolean tryEncode(String line)
+	{
+		try
+		{
+			if(line.startsWith("Match hand "))
+			{
+				int hand = Integer.parseInt(line.substring(11));
+				if(!line.equals("Match hand " + hand))
+					return false;
+				writeByte(HAND_START);
+				writeNumber(hand);
+				return true;
+			}
+			if(line.startsWith("Match pot "))
+			{
+				int pot = Integer.parseInt(line.substring(10));
+				if(!line.equals("Match pot " + pot))
+					return false;
+				writeByte(POT);
+				writeNumber(pot);
+				return true;
+			}
+			if(line.startsWith("Match sidepot"))
+			{
+				int space = line.indexOf(' ', 13);
+				int index = Integer.parseInt(line.substring(13, space));
+				int pot = Integer.parseInt(line.substring(space + 1));
+				if(!line.equals("Match sidepot" + index + " " + pot))
+					return false;
+				writeByte(SIDEPOT);
+				writeNumber(index);
+				writeNumber(pot);
+				return true;
+			}
+			if(line.startsWith("Match table "))
+			{
+				int[] cards = parseCards(line.substring(12));
+				if(cards == null || cards.length == 0)
+					return false;
+				writeByte(TABLE);
+				writeCards(cards);
+				return true;
+			}
+			if(line.startsWith("Result ") && tryEncodeResult(line))
+				return true;
+			return tryEncodeBotLine(line);
+		}
+		catch(NumberFormatException e)
+		{
+			return false;
+		}
+		catch(IndexOutOfBoundsException e)
+		{
+			return false;
+		}
+	}
+
+
+	/**
+	 * Encodes "Result pot [a:1,b:2]" or "Result sidepotK [...]".
+	 */
+	private boolean tryEncodeResult(String line)
+	{
+		int index;
+		int bracket;
+		if(line.startsWith("Result pot ["))
+		{
+			index = 0;
+			bracket = 11;
+		}
+		else if(line.startsWith("Result sidepot"))
+		{
+			int space = line.indexOf(' ', 14);
+			index = Integer.parseInt(line.substring(14, space));
+			if(index <= 0)
+				return false;
+			bracket = space + 1;
+		}
+		else
+			return false;
+		if(!line.endsWith("]") || line.charAt(bracket) != '[' || bracket + 1 >= line.length() - 1)
+			return false;
+
+		String[] winners = line.substring(bracket + 1, line.length() - 1).split(",", -1);
+		int[] ids = new int[winners.length];
+		int[] amounts = new int[winners.length];
+		check.setLength(0);
+		check.append(index == 0 ? "Result pot [" : "Result sidepot" + index + " [");
+		for(int i = 0; i < winners.length; i++)
+		{
+			int colon = winners[i].lastIndexOf(':');
+			String name = winners[i].substring(0, colon);
+			amounts[i] = Integer.parseInt(winners[i].substring(colon + 1));
+			ids[i] = defineName(name);
+			check.append(i > 0 ? "," : "").append(name).append(':').append(amounts[i]);
+		}
+		writeByte(RESULT);
+		writeNumber(index);
+		writeNumber(winners.length);
+		for(int i = 0; i < winners.length; i++)
+		{
+			writeNumber(ids[i]);
+			writeNumber(amounts[i]);
+		}
+		check.append(']');
+		return line.contentEquals(check);
+	}
+
+
+	/**
+	 * Encodes "<name> <verb> <argument>" lines; the name may contain spaces.
+	 */
+	private boolean tryEncodeBotLine(String line)
+	{
+		int lastSpace = line.lastIndexOf(' ');
+		int verbSpace = lastSpace > 0 ? line.lastIndexOf(' ', lastSpace - 1) : -1;
+		if(verbSpace <= 0)
+			return false;
+		String name = line.substring(0, verbSpace);
+		String verb = line.substring(verbSpace + 1, lastSpace);
+		String argument = line.substring(lastSpace + 1);
+
+		if(verb.equals("hand"))
+		{
+			int[] cards = parseCards(argument);
+			if(cards == null)
+				return false;
+			int id = defineName(name);
+			writeByte(HOLE);
+			writeNumber(id);
+			writeCards(cards);
+			return true;
+		}
+
+		int op;
+		if(verb.equals("stack"))
+			op = STACK;
+		else if(verb.equals("post"))
+			op = POST;
+		else
+		{
+			op = -1;
+			for(int i = 0; i < ACTIONS.length; i++)
+				if(verb.equals(ACTIONS[i]))
+					op = CHECK + i;
+			if(op < 0)
+				return false;
+		}
+		int amount = Integer.parseInt(argument);
+		if(!argument.equals(Integer.toString(amount)))
+			return false;
+		int id = defineName(name);
+		writeByte(op);
+		writeNumber(id);
+		writeNumber(amount);
+		return true;
+	}
+
+
+	/**
+	 * Parses "[c,c,...]" into card numbers, or returns null if it is not exactly such a list.
+	 */
+	private static int[] parseCards(String list)
+	{
+		if(!list.startsWith("[") || !list.endsWith("]") || list.length() < 2)
+			return null;
+		if(list.length() == 2)
+			return new int[0];
+		String[] parts = list.substring(1, list.length() - 1).split(",", -1);
+		int[] cards = new int[parts.length];
+		for(int i = 0; i < parts.length; i++)
+		{
+			Card card = Card.getCard(parts[i]);
+			if(card == null)
+				return null;
+			cards[i] = card.getIndex();
+		}
+		return cards;
+	}
+
+
+	/**
+	 * Returns the id of a name, first writing a NAME operation if the record does not define it yet. Names must be
+	 * defined before the operation that uses them.
+	 */
+	private int defineName(String name)
+	{
+		Integer id = nameIds.get(name);
+		if(id == null)
+		{
+			id = nameIds.size();
+			nameIds.put(name, id);
+			lineNames.add(name);
+			writeByte(NAME);
+			writeString(name);
+		}
+		return id;
+	}
+
+
+	private void writeCards(int[] cards)
+	{
+		writeNumber(cards.length);
+		for(int card : cards)
+			writeByte(card);
+	}
+
+
+	private void writeString(String string)
+	{
+		byte[] bytes = string.getBytes(UTF8);
+		writeNumber(bytes.length);
+		ensure(bytes.length);
+		System.arraycopy(bytes, 0, buffer, size, bytes.length);
+		size += bytes.length;
+	}
+
+
+	/**
+	 * Writes a zigzag varint.
+	 */
+	private void writeNumber(int value)
+	{
+		int zigzag = (value << 1) ^ (value >> 31);
+		ensure(5);
+		while((zigzag & ~0x7F) != 0)
+		{
+			buffer[size++] = (byte) ((zigzag & 0x7F) | 0x80);
+			zigzag >>>= 7;
+		}
+		buffer[size++] = (byte) zigzag;
+	}
+
+
+	private void writeByte(int value)
+	{
+		ensure(1);
+		buffer[size++] = (byte) value;
+	}
+
+
+	private void ensure(int bytes)
+	{
+		if(size + bytes > buffer.length)
+		{
+			byte[] larger = new byte[Math.max(buffer.length * 2, size + bytes)];
+			System.arraycopy(buffer, 0, larger, 0, size);
+			buffer = larger;
+		}
+	}
+}
@@ -0,0 +1,517 @@
+package nl.starapple.history;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Append-only store of hand histories with an index for fast queries by match, bot, showdown and pot size.
+ * <p>
+ * The store is a directory of segments. Each segment is a data file <code>hands-NNNNN.dat</code>, which is a binary
+ * history as described by {@link BinaryHistoryFormat} and can be read by {@link BinaryHistoryReader}, and an index
+ * file <code>hands-NNNNN.idx</code> with one entry per record. An entry holds the offset and length of the record,
+ * the match id, the hand number, the total pot, whether the hand went to a showdown, and the id and net result of
+ * each bot of the hand. Bot names get their id from the dictionary <code>bots.txt</code>, one name per line. When a
+ * data file reaches the segment size, the next hand starts a new segment.
+ * <p>
+ * Queries map the index and data files and walk the index; only the records of matching hands are decoded. The
+ * store is thread-safe, so the matches of a tournament can write to it at the same time.
+ */
+public class HandStore
+{
+	/** The default size at which a segment is closed and a new one started. */
+	public static final long DEFAULT_SEGMENT_SIZE = 256l << 20;
+
+	private static final int ENTRY_HEADER = 22;		// offset, length, match, hand, pot (ints), flags, bot count
+	private static final int ENTRY_BOT = 8;			// bot id, net result (ints)
+	private static final int FLAG_SHOWDOWN = 1;
+
+	private final File directory;
+	private final long segmentSize;
+	private final List<String> botNames = new ArrayList<String>();
+	private final Map<String, Integer> botIds = new HashMap<String, Integer>();
+	private final Writer botWriter;
+	private final HandRecordEncoder encoder = new HandRecordEncoder();
+	private final HandRecordDecoder decoder = new HandRecordDecoder();
+	private final HandSummary summary = new HandSummary();
+	private final List<MappedByteBuffer[]> sealedMaps = new ArrayList<MappedByteBuffer[]>();	// per sealed segment
+	private int segment;			// the number of the segment that is written
+	private OutputStream data;
+	private DataOutputStream index;
+	private long dataPosition;
+	private int nextMatchId;
+	private boolean closed;
+
+
+	/**
+	 * Opens the store in the given directory, creating it if needed, with the default segment size.
+	 */
+	public HandStore(File directory) throws IOException
+	{
+		this(directory, DEFAULT_SEGMENT_SIZE);
+	}
+
+
+	/**
+	 * Opens the store in the given directory, creating it if needed. Hands are appended to the last segment.
+	 * @param directory : the directory of the store
+	 * @param segmentSize : the size in bytes at which a data file is closed, at most 2 GB
+	 */
+	public HandStore(File directory, long segmentSize) throws IOException
+	{
+		if(segmentSize <= 0 || segmentSize > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("Segment size must be between 1 byte and 2 GB");
+		this.directory = directory;
+		this.segmentSize = segmentSize;
+		if(!directory.isDirectory() && !directory.mkdirs())
+			throw new IOException("Cannot create directory " + directory);
+
+		File botFile = new File(directory, "bots.txt");
+		if(botFile.exists())
+		{
+			BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(botFile), "UTF-8"));
+			try
+			{
+				String name;
+				while((name = in.readLine()) != null)
+				{
+					botIds.put(name, botNames.size());
+					botNames.add(name);
+				}
+			}
+			finally
+			{
+				in.close();
+			}
+		}
+		botWriter = new OutputStreamWriter(new FileOutputStream(botFile, true), "UTF-8");
+
+		segment = 0;
+		while(dataFile(segment + 1).exists())
+			segment++;
+		for(int i = 0; i <= segment && indexFile(i).exists(); i++)
+		{
+			ByteBuffer entries = map(indexFile(i));
+			for(int position = 0; position < entries.limit(); position += entrySize(entries, position))
+				nextMatchId = Math.max(nextMatchId, entries.getInt(position + 8) + 1);
+		}
+		openSegment();
+	}
+
+
+	/**
+	 * Returns a sink that stores the hands written to it under a new match id. Closing the sink leaves the store
+	 * open.
+	 */
+	public synchronized MatchSink openMatch()
+	{
+		checkOpen();
+		return new MatchSink(nextMatchId++);
+	}
+
+
+	/**
+	 * Sink that stores the hands of one match; obtain one with {@link HandStore#openMatch()}.
+	 */
+	public class MatchSink implements HandHistorySink
+	{
+		private final int matchId;
+
+		private MatchSink(int matchId)
+		{
+			this.matchId = matchId;
+		}
+
+		/**
+		 * Returns the id of the match in the store.
+		 */
+		public int getMatchId()
+		{
+			return matchId;
+		}
+
+		@Override
+		public void writeHand(CharSequence hand)
+		{
+			try
+			{
+				append(matchId, hand);
+			}
+			catch(IOException e)
+			{
+				e.printStackTrace();
+			}
+		}
+
+		@Override
+		public void flush()
+		{
+			HandStore.this.flush();
+		}
+
+		@Override
+		public void close()
+		{
+			HandStore.this.flush();
+		}
+	}
+
+
+	/**
+	 * Appends a hand to the store. The text is the history of one hand as the engine passes it to its sink.
+	 * @param matchId : the id of the match the hand belongs to
+	 * @param hand : the text of the hand, lines separated by '\n'
+	 */
+	public synchronized void append(int matchId, CharSequence hand) throws IOException
+	{
+		checkOpen();
+		int length = encoder.encode(hand);
+		decoder.summarize(encoder.getBuffer(), 0, length, summary);
+		int[] ids = new int[summary.getBotCount()];
+		for(int i = 0; i < ids.length; i++)
+			ids[i] = botId(summary.getBotName(i));
+
+		int lengthBytes = 1;
+		for(int rest = length >>> 7; rest != 0; rest >>>= 7)
+			lengthBytes++;
+		if(dataPosition > BinaryHistoryFormat.MAGIC.length + 1 && dataPosition + lengthBytes + length > segmentSize)
+		{
+			closeSegment();
+			segment++;
+			openSegment();
+		}
+		encoder.writeRecord(data);
+		dataPosition += lengthBytes;
+
+		index.writeInt((int) dataPosition);
+		index.writeInt(length);
+		index.writeInt(matchId);
+		index.writeInt(summary.getHandNumber());
+		index.writeInt(summary.getPot());
+		index.writeByte(summary.isShowdown() ? FLAG_SHOWDOWN : 0);
+		index.writeByte(ids.length);
+		for(int i = 0; i < ids.length; i++)
+		{
+			index.writeInt(ids[i]);
+			index.writeInt(summary.getNet(i));
+		}
+		dataPosition += length;
+	}
+
+
+	/**
+	 * Returns the number of hands that match a query. Only the index is read.
+	 */
+	public synchronized int countHands(HandQuery query) throws IOException
+	{
+		return select(query, null);
+	}
+
+
+	/**
+	 * Returns the text of the hands that match a query, in the order they were stored.
+	 */
+	public synchronized List<String> findHands(HandQuery query) throws IOException
+	{
+		List<String> hands = new ArrayList<String>();
+		select(query, hands);
+		return hands;
+	}
+
+
+	/**
+	 * Walks the index of all segments and decodes the records of the matching hands into the list, if there is one.
+	 * @return the number of matching hands
+	 */
+	private int select(HandQuery query, List<String> hands) throws IOException
+	{
+		checkOpen();
+		flush();
+		int botId = -1;
+		if(query.bot != null)
+		{
+			Integer id = botIds.get(query.bot);
+			if(id == null)
+				return 0;
+			botId = id;
+		}
+
+		int count = 0;
+		byte[] record = new byte[1024];
+		StringBuilder hand = new StringBuilder(512);
+		for(int i = 0; i <= segment; i++)
+		{
+			MappedByteBuffer[] maps = segmentMaps(i);
+			ByteBuffer entries = maps[1];
+			for(int position = 0; position < entries.limit(); position += entrySize(entries, position))
+			{
+				if(!matches(entries, position, query, botId))
+					continue;
+				count++;
+				if(hands == null)
+					continue;
+				int offset = entries.getInt(position);
+				int length = entries.getInt(position + 4);
+				if(length > record.length)
+					record = new byte[Math.max(length, record.length * 2)];
+				ByteBuffer dataMap = maps[0].duplicate();
+				dataMap.position(offset);
+				dataMap.get(record, 0, length);
+				hand.setLength(0);
+				decoder.decode(record, 0, length, hand);
+				hands.add(hand.toString());
+			}
+		}
+		return count;
+	}
+
+
+	private static boolean matches(ByteBuffer entries, int position, HandQuery query, int botId)
+	{
+		if(query.matchId >= 0 && entries.getInt(position + 8) != query.matchId)
+			return false;
+		int pot = entries.getInt(position + 16);
+		if(pot < query.minPot || pot > query.maxPot)
+			return false;
+		if(query.showdown >= 0 && (entries.get(position + 20) & FLAG_SHOWDOWN) != query.showdown)
+			return false;
+		if(botId < 0 && query.minNet == Integer.MIN_VALUE && query.maxNet == Integer.MAX_VALUE)
+			return true;
+		int bots = entries.get(position + 21) & 0xFF;
+		for(int b = position + ENTRY_HEADER; b < position + ENTRY_HEADER + bots * ENTRY_BOT; b += ENTRY_BOT)
+		{
+			if(botId >= 0 && entries.getInt(b) != botId)
+				continue;
+			int net = entries.getInt(b + 4);
+			if(net >= query.minNet && net <= query.maxNet)
+				return true;
+		}
+		return false;
+	}
+
+
+	private static int entrySize(ByteBuffer entries, int position)
+	{
+		return ENTRY_HEADER + (entries.get(position + 21) & 0xFF) * ENTRY_BOT;
+	}
+
+
+	/**
+	 * Returns the mapped data and index file of a segment. Sealed segments are mapped once; the segment that is
+	 * written is mapped again for every query, as it grows.
+	 */
+	private MappedByteBuffer[] segmentMaps(int number) throws IOException
+	{
+		if(number < sealedMaps.size())
+			return sealedMaps.get(number);
+		MappedByteBuffer[] maps = {map(dataFile(number)), map(indexFile(number))};
+		if(number < segment && number == sealedMaps.size())
+			sealedMaps.add(maps);
+		return maps;
+	}
+
+
+	private static MappedByteBuffer map(File file) throws IOException
+	{
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try
+		{
+			FileChannel channel = raf.getChannel();
+			return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		finally
+		{
+			raf.close();	// the mapping stays valid
+		}
+	}
+
+
+	/**
+	 * Returns the id of a bot name, adding it to the dictionary if it is new.
+	 */
+	private int botId(String name) throws IOException
+	{
+		Integer id = botIds.get(name);
+		if(id == null)
+		{
+			if(name.indexOf('\n') >= 0 || name.indexOf('\r') >= 0)
+				throw new IOException("Bot names cannot contain line breaks");
+			id = botNames.size();
+			botIds.put(name, id);
+			botNames.add(name);
+			botWriter.write(name);
+			botWriter.write('\n');
+			botWriter.flush();
+		}
+		return id;
+	}
+
+
+	private File dataFile(int number)
+	{
+		return new File(directory, String.format("hands-%05d.dat", number));
+	}
+
+	private File indexFile(int number)
+	{
+		return new File(directory, String.format("hands-%05d.idx", number));
+	}
+
+
+	/**
+	 * Opens the files of the current segment for appending, writing the header of a new data file.
+	 */
+	private void openSegment() throws IOException
+	{
+		File dataFile = dataFile(segment);
+		boolean created = !dataFile.exists() || dataFile.length() == 0;
+		data = new BufferedOutputStream(new FileOutputStream(dataFile, true), 1 << 16);
+		index = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile(segment), true), 1 << 14));
+		if(created)
+		{
+			BinaryHistoryFormat.writeHeader(data);
+			dataPosition = BinaryHistoryFormat.MAGIC.length + 1;
+		}
+		else
+			dataPosition = dataFile.length();
+	}
+
+
+	private void closeSegment() throws IOException
+	{
+		data.close();
+		index.close();
+	}
+
+
+	/**
+	 * Writes all stored hands to the files.
+	 */
+	public synchronized void flush()
+	{
+		if(closed)
+			return;
+		try
+		{
+			data.flush();
+			index.flush();
+		}
+		catch(IOException e)
+		{
+			e.printStackTrace();
+		}
+	}
+
+
+	/**
+	 * Flushes and closes the store. Sinks of the store cannot write afterwards.
+	 */
+	public synchronized void close() throws IOException
+	{
+		if(closed)
+			return;
+		closed = true;
+		closeSegment();
+		botWriter.close();
+		sealedMaps.clear();
+	}
+
+
+	private void checkOpen()
+	{
+		if(closed)
+			throw new IllegalStateException("The hand store is closed");
+	}
+
+
+	/**
+	 * Returns the names of the bots in the store, in the order they were first stored.
+	 */
+	public synchronized List<String> getBotNames()
+	{
+		return new ArrayList<String>(botNames);
+	}
+
+
+	/**
+	 * Prints the number of hands matching a query on a store. Usage:
+	 * <code>HandStore &lt;directory&gt; [match=N] [bot=NAME] [showdown=true|false] [pot=MIN:MAX] [net=MIN:MAX] [print]</code>
+	 */
+	public static void main(String[] args) throws IOException
+	{
+		if(args.length == 0)
+		{
+			System.err.println("Usage: HandStore <directory> [match=N] [bot=NAME] [showdown=true|false] [pot=MIN:MAX] "
+					+ "[net=MIN:MAX] [print]");
+			System.exit(1);
+		}
+		HandQuery query = new HandQuery();
+		boolean print = false;
+		for(String arg : Arrays.asList(args).subList(1, args.length))
+		{
+			String value = arg.substring(arg.indexOf('=') + 1);
+			if(arg.startsWith("match="))
+				query.setMatch(Integer.parseInt(value));
+			else if(arg.startsWith("bot="))
+				query.setBot(value);
+			else if(arg.startsWith("showdown="))
+				query.setShowdown(Boolean.parseBoolean(value));
+			else if(arg.startsWith("pot="))
+				query.setPotRange(rangeBound(value, 0), rangeBound(value, 1));
+			else if(arg.startsWith("net="))
+				query.setNetRange(rangeBound(value, 0), rangeBound(value, 1));
+			else if(arg.equals("print"))
+				print = true;
+			else
+				System.err.println("Ignoring unknown argument " + arg);
+		}
+		HandStore store = new HandStore(new File(args[0]));
+		try
+		{
+			int count;
+			if(print)
+			{
+				List<String> hands = store.findHands(query);
+				for(String hand : hands)
+					System.out.println(hand);
+				count = hands.size();
+			}
+			else
+				count = store.countHands(query);
+			System.err.println(count + " hands");
+		}
+		finally
+		{
+			store.close();
+		}
+	}
+
+	/**
+	 * Parses one bound of "MIN:MAX", where an empty bound is unbounded.
+	 */
+	private static int rangeBound(String range, int which)
+	{
+		String[] bounds = range.split(":", -1);
+		String bound = bounds[Math.min(which, bounds.length - 1)].trim();
+		if(bound.length() == 0)
+			return which == 0 ? Integer.MIN_VALUE : Integer.MAX_VALUE;
+		return Integer.parseInt(bound);
+	}
+}
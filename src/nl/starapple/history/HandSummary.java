@@ -0,0 +1,150 @@
+package nl.starapple.history;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The facts of a hand that the hand store indexes: its number, the bots that played it, whether it went to a
+ * showdown, the chips won from the pots and the net result of each bot. Filled in by
+ * {@link HandRecordDecoder#summarize(byte[], int, int, HandSummary)} and reused for every hand.
+ */
+public class HandSummary
+{
+	private int handNumber;
+	private int pot;
+	private int dealt;
+	private int folds;
+	private final List<String> names = new ArrayList<String>();
+	private int[] roundBets = new int[4];
+	private int[] contributed = new int[4];
+	private int[] won = new int[4];
+
+
+	void reset()
+	{
+		handNumber = 0;
+		pot = 0;
+		dealt = 0;
+		folds = 0;
+		names.clear();
+	}
+
+	void addName(String name)
+	{
+		int id = names.size();
+		names.add(name);
+		if(id == won.length)
+		{
+			roundBets = grow(roundBets);
+			contributed = grow(contributed);
+			won = grow(won);
+		}
+		roundBets[id] = 0;
+		contributed[id] = 0;
+		won[id] = 0;
+	}
+
+	private static int[] grow(int[] array)
+	{
+		int[] larger = new int[array.length * 2];
+		System.arraycopy(array, 0, larger, 0, array.length);
+		return larger;
+	}
+
+	void setHandNumber(int number)
+	{
+		handNumber = number;
+	}
+
+	void dealt()
+	{
+		dealt++;
+	}
+
+	void folded()
+	{
+		folds++;
+	}
+
+	/**
+	 * Records the total a bot has put in during the current bet round, as the post and action lines give it.
+	 */
+	void bet(int id, int roundTotal)
+	{
+		roundBets[id] = roundTotal;
+	}
+
+	/**
+	 * Closes the current bet round when the next table cards are dealt.
+	 */
+	void nextRound()
+	{
+		for(int i = 0; i < names.size(); i++)
+		{
+			contributed[i] += roundBets[i];
+			roundBets[i] = 0;
+		}
+	}
+
+	void won(int id, int amount)
+	{
+		won[id] += amount;
+		pot += amount;
+	}
+
+
+	/**
+	 * Returns the number of the hand within its match, or 0 if the record has no hand line.
+	 */
+	public int getHandNumber()
+	{
+		return handNumber;
+	}
+
+
+	/**
+	 * Returns the total of the chips paid out from all pots of the hand.
+	 */
+	public int getPot()
+	{
+		return pot;
+	}
+
+
+	/**
+	 * Returns whether at least two bots that were dealt in did not fold.
+	 */
+	public boolean isShowdown()
+	{
+		return dealt - folds >= 2;
+	}
+
+
+	/**
+	 * Returns the number of bots named in the hand.
+	 */
+	public int getBotCount()
+	{
+		return names.size();
+	}
+
+
+	/**
+	 * Returns the name of a bot of the hand.
+	 * @param i : the bot, from 0 to getBotCount() - 1
+	 */
+	public String getBotName(int i)
+	{
+		return names.get(i);
+	}
+
+
+	/**
+	 * Returns the chips a bot won minus the chips it put in during the hand.
+	 * @param i : the bot, from 0 to getBotCount() - 1
+	 */
+	public int getNet(int i)
+	{
+		return won[i] - contributed[i] - roundBets[i];
+	}
+}
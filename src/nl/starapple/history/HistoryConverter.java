@@ -0,0 +1,130 @@
+package nl.starapple.history;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+/**
+ * Converts hand histories between the text format printed by the engine and the binary format of
+ * {@link BinaryHistoryFormat}. Converting text to binary and back gives the same text.
+ * <p>
+ * Usage: <code>HistoryConverter toText|toBinary &lt;input&gt; &lt;output&gt;</code>
+ */
+public class HistoryConverter
+{
+	private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+
+	public static void main(String[] args) throws IOException
+	{
+		if(args.length != 3 || !(args[0].equals("toText") || args[0].equals("toBinary")))
+		{
+			System.err.println("Usage: HistoryConverter toText|toBinary <input> <output>");
+			System.exit(1);
+		}
+		InputStream in = new FileInputStream(args[1]);
+		try
+		{
+			OutputStream out = new FileOutputStream(args[2]);
+			try
+			{
+				int hands = args[0].equals("toText") ? toText(in, out) : toBinary(in, out);
+				System.err.println("Converted " + hands + " hands");
+			}
+			finally
+			{
+				out.close();
+			}
+		}
+		finally
+		{
+			in.close();
+		}
+	}
+
+
+	/**
+	 * Writes a binary history as text, in the default character encoding like the engine does.
+	 * @return the number of hands
+	 */
+	public static int toText(InputStream binary, OutputStream text) throws IOException
+	{
+		BinaryHistoryReader reader = new BinaryHistoryReader(binary);
+		Writer out = new BufferedWriter(new OutputStreamWriter(text), 1 << 16);
+		StringBuilder hand = new StringBuilder(512);
+		int hands = 0;
+		while(reader.nextRecord())
+		{
+			hand.setLength(0);
+			reader.appendHand(hand);
+			out.append(hand).append(LINE_SEPARATOR);
+			hands++;
+		}
+		out.flush();
+		return hands;
+	}
+
+
+	/**
+	 * Writes a text history in the binary format. The text is split into hands where an empty line is followed by a
+	 * "Match hand" line, which is how the engine separates them; anything before the first hand stays with it.
+	 * @return the number of hands
+	 */
+	public static int toBinary(InputStream text, OutputStream binary) throws IOException
+	{
+		BufferedReader in = new BufferedReader(new InputStreamReader(text), 1 << 16);
+		BinaryHistorySink sink = new BinaryHistorySink(binary);
+		StringBuilder hand = new StringBuilder(512);
+		boolean started = false;
+		String pendingEmpty = null;	// an empty line that may start the next hand
+		int hands = 0;
+		String line;
+		while((line = in.readLine()) != null)
+		{
+			if(pendingEmpty != null)
+			{
+				if(line.startsWith("Match hand "))
+				{
+					sink.writeHand(hand);
+					hands++;
+					hand.setLength(0);
+					hand.append('\n').append(line);
+					pendingEmpty = null;
+					continue;
+				}
+				append(hand, started, pendingEmpty);
+				started = true;
+				pendingEmpty = null;
+			}
+			if(line.length() == 0 && started)
+				pendingEmpty = line;
+			else
+			{
+				append(hand, started, line);
+				started = true;
+			}
+		}
+		if(pendingEmpty != null)
+			append(hand, started, pendingEmpty);
+		if(started)
+		{
+			sink.writeHand(hand);
+			hands++;
+		}
+		sink.flush();
+		return hands;
+	}
+
+	private static void append(StringBuilder hand, boolean started, String line)
+	{
+		if(started)
+			hand.append('\n');
+		hand.append(line);
+	}
+}
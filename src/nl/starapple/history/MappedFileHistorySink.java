@@ -0,0 +1,193 @@
+package nl.starapple.history;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+
+/**
+ * Hand history sink that encodes the hands straight into a memory-mapped file. Writing a hand is a copy into mapped
+ * memory without any system call; the operating system writes the pages to disk in the background. The file is mapped
+ * in regions of a fixed size, and a new region is mapped when one is full. Closing the sink truncates the file to the
+ * written length.
+ * <p>
+ * Some systems, such as Windows, cannot truncate a file while a region of it is mapped, and Java offers no public way
+ * to unmap one. Full regions and the last region on closing are therefore unmapped through the internal cleaner of
+ * the JVM. On a JVM where that is not possible the file keeps the zero bytes after the hands up to the end of the last
+ * region; this is reported on the error channel.
+ * <p>
+ * This sink is meant to be used by the thread that plays the match.
+ */
+public class MappedFileHistorySink implements HandHistorySink
+{
+	private static final int REGION_SIZE = 8 << 20;
+	private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+	
+	private final File output;
+	private final RandomAccessFile file;
+	private final FileChannel channel;
+	private final CharsetEncoder encoder;
+	private MappedByteBuffer region;
+	private long regionStart;
+	private boolean closed;
+	
+	
+	/**
+	 * Creates a sink that writes UTF-8 text to the given file, which is created or emptied.
+	 */
+	public MappedFileHistorySink(File output) throws IOException
+	{
+		this(output, Charset.forName("UTF-8"));
+	}
+	
+	
+	/**
+	 * Creates a sink that writes text in the given encoding to the given file, which is created or emptied.
+	 */
+	public MappedFileHistorySink(File output, Charset charset) throws IOException
+	{
+		this.output = output;
+		file = new RandomAccessFile(output, "rw");
+		file.setLength(0);
+		channel = file.getChannel();
+		encoder = charset.newEncoder();
+		region = channel.map(FileChannel.MapMode.READ_WRITE, 0, REGION_SIZE);
+		regionStart = 0;
+	}
+	
+	
+	@Override
+	public void writeHand(CharSequence hand)
+	{
+		if(closed)
+			throw new IllegalStateException("The history sink is closed");
+		try
+		{
+			encode(CharBuffer.wrap(hand), false);
+			encode(CharBuffer.wrap(LINE_SEPARATOR), true);
+		}
+		catch(IOException e)
+		{
+			e.printStackTrace();
+		}
+	}
+	
+	
+	/**
+	 * Encodes the characters into the mapped regions, mapping the next region whenever the current one is full.
+	 */
+	private void encode(CharBuffer chars, boolean endOfHand) throws IOException
+	{
+		while(true)
+		{
+			CoderResult result = encoder.encode(chars, region, endOfHand);
+			if(result.isOverflow())
+				nextRegion();
+			else if(result.isUnderflow())
+				break;
+			else
+				result.throwException();
+		}
+		if(endOfHand)
+		{
+			while(encoder.flush(region).isOverflow())
+				nextRegion();
+			encoder.reset();
+		}
+	}
+	
+	
+	private void nextRegion() throws IOException
+	{
+		MappedByteBuffer full = region;
+		regionStart += full.position();
+		region = channel.map(FileChannel.MapMode.READ_WRITE, regionStart, REGION_SIZE);
+		unmap(full);
+	}
+	
+	
+	/**
+	 * Unmaps a region, which must not be used afterwards.
+	 * @return whether the region was unmapped; if not, it stays mapped until it is garbage collected
+	 */
+	private static boolean unmap(MappedByteBuffer buffer)
+	{
+		try
+		{
+			try
+			{
+				// Java 9 and later
+				Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+				Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+				Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+				theUnsafe.setAccessible(true);
+				invokeCleaner.invoke(theUnsafe.get(null), buffer);
+			}
+			catch(NoSuchMethodException e)
+			{
+				// Java 8 and earlier: the buffer has a cleaner of its own
+				Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+				cleanerMethod.setAccessible(true);
+				Object cleaner = cleanerMethod.invoke(buffer);
+				cleaner.getClass().getMethod("clean").invoke(cleaner);
+			}
+			return true;
+		}
+		catch(Exception e)
+		{
+			return false;
+		}
+	}
+	
+	
+	/**
+	 * Forces the written hands to the disk. Not needed for other processes to read them: the mapped pages are shared
+	 * through the page cache as soon as they are written.
+	 */
+	@Override
+	public void flush()
+	{
+		if(!closed)
+			region.force();
+	}
+	
+	
+	@Override
+	public void close()
+	{
+		if(closed)
+			return;
+		closed = true;
+		try
+		{
+			long length = regionStart + region.position();
+			region.force();
+			boolean unmapped = unmap(region);
+			region = null;
+			try
+			{
+				file.setLength(length);
+			}
+			catch(IOException e)
+			{
+				if(unmapped)
+					throw e;
+				System.err.println("Could not truncate " + output + " while it is mapped, it is padded with zero bytes "
+						+ "after the hands");
+			}
+			file.close();
+		}
+		catch(IOException e)
+		{
+			e.printStackTrace();
+		}
+	}
+}
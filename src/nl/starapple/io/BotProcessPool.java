@@ -0,0 +1,168 @@
+package nl.starapple.io;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps bot processes running between matches, so that a tournament does not pay the startup and warmup of a process,
+ * such as a JVM, for every match. Processes are kept per command. A process that is released after a match is reset
+ * with the "Settings newMatch N" handshake, to which the bot answers "ready N", and is then handed out again. A
+ * process is stopped instead when it has exited, does not answer the handshake in time or has played the match limit.
+ * Bots that do not know the handshake can still be pooled, but none of their processes will be reused.
+ * <p>
+ * The transcripts of a reused process hold the text of all its matches. Thread-safe.
+ */
+public class BotProcessPool {
+
+	/** The default number of matches a process plays before it is replaced by a new one. */
+	public static final int DEFAULT_MATCH_LIMIT = 100;
+	/** The time in milliseconds a bot has to answer the handshake. */
+	public static final long HANDSHAKE_TIME = 2000;
+
+	private final int matchLimit;
+	private final int transcriptSize;
+	private final Map<String, Deque<IORobot>> idle = new HashMap<String, Deque<IORobot>>();
+	private boolean closed;
+	private int started, reused;
+
+	/**
+	 * Creates a pool with the default match limit and transcript size.
+	 */
+	public BotProcessPool() {
+		this(DEFAULT_MATCH_LIMIT, Transcript.DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @param matchLimit : the number of matches a process plays before it is replaced by a new one
+	 * @param transcriptSize : the number of characters of each stream of a process that are kept in memory
+	 */
+	public BotProcessPool(int matchLimit, int transcriptSize) {
+		if( matchLimit < 1 ) {
+			throw new IllegalArgumentException("A process must be allowed at least one match");
+		}
+		this.matchLimit = matchLimit;
+		this.transcriptSize = transcriptSize;
+	}
+
+	/**
+	 * Starts processes ahead of the first matches and waits until they answer the handshake, so that they are up
+	 * when the matches start. Processes that do not answer are stopped.
+	 * @param command : the command that starts the bot
+	 * @param count : the number of processes to start
+	 */
+	public void warmUp(String command, int count) throws IOException {
+		List<IORobot> robots = new ArrayList<IORobot>(count);
+		for( int i = 0; i < count; i++ ) {
+			synchronized( this ) { started++; }
+			robots.add(new IORobot(command, transcriptSize, null));
+		}
+		// the processes start up at the same time, their answers are awaited one by one
+		for( IORobot robot : robots ) {
+			if( robot.newMatch(0, HANDSHAKE_TIME) ) {
+				keep(robot);
+			} else {
+				System.err.println("Bot process \"" + command + "\" did not answer the handshake, it is not pooled");
+				robot.finish();
+			}
+		}
+	}
+
+	/**
+	 * Returns a running bot process for a match: an idle one if there is one, otherwise a new one.
+	 * @param command : the command that starts the bot
+	 * @throws IllegalStateException if the pool is closed
+	 */
+	public IORobot acquire(String command) throws IOException {
+		while( true ) {
+			IORobot robot;
+			synchronized( this ) {
+				if( closed ) {
+					throw new IllegalStateException("The bot process pool is closed");
+				}
+				Deque<IORobot> robots = idle.get(command);
+				robot = robots == null ? null : robots.poll();
+				if( robot == null ) {
+					started++;
+					break;
+				}
+			}
+			// a process can exit while it is idle
+			if( robot.isRunning() ) {
+				synchronized( this ) { reused++; }
+				return robot;
+			}
+			robot.finish();
+		}
+		return new IORobot(command, transcriptSize, null);
+	}
+
+	/**
+	 * Returns a bot process after its match. It is reset for the next match or stopped, see the class description.
+	 * The robot must not be used by the caller anymore.
+	 */
+	public void release(IORobot robot) {
+		robot.matchesPlayed++;
+		if( robot.matchesPlayed >= matchLimit || !robot.isRunning() ) {
+			robot.finish();
+			return;
+		}
+		if( !robot.newMatch(robot.matchesPlayed, HANDSHAKE_TIME) ) {
+			System.err.println("Bot process \"" + robot.getCommand() + "\" did not answer the handshake, it is stopped");
+			robot.finish();
+			return;
+		}
+		keep(robot);
+	}
+
+	private void keep(IORobot robot) {
+		synchronized( this ) {
+			if( !closed ) {
+				Deque<IORobot> robots = idle.get(robot.getCommand());
+				if( robots == null ) {
+					robots = new ArrayDeque<IORobot>();
+					idle.put(robot.getCommand(), robots);
+				}
+				// the most recently used process is handed out first, it is the warmest
+				robots.push(robot);
+				return;
+			}
+		}
+		robot.finish();
+	}
+
+	/**
+	 * Stops all idle processes. Processes that are released after this are stopped as well.
+	 */
+	public void close() {
+		List<IORobot> robots = new ArrayList<IORobot>();
+		synchronized( this ) {
+			closed = true;
+			for( Deque<IORobot> commandRobots : idle.values() ) {
+				robots.addAll(commandRobots);
+			}
+			idle.clear();
+		}
+		for( IORobot robot : robots ) {
+			robot.finish();
+		}
+	}
+
+	/**
+	 * Returns the number of processes that were started.
+	 */
+	public synchronized int getStarted() {
+		return started;
+	}
+
+	/**
+	 * Returns the number of times an idle process was handed out instead of starting a new one.
+	 */
+	public synchronized int getReused() {
+		return reused;
+	}
+}
@@ -1,5 +1,6 @@
 package nl.starapple.io;
 
+import java.io.File;
 import java.io.IOException;
 
 public class IOHandler {
@@ -7,15 +8,35 @@ public class IOHandler {
 	Process child;
 	InStream out, err;
 	OutStream in;
+	volatile boolean exited;	// whether the process was found to have exited at a flush point
 	
 	public IOHandler(String command) throws IOException {
+		this(command, Transcript.DEFAULT_CAPACITY, null);
+	}
+	
+	/**
+	 * Starts a bot process whose streams keep transcripts of a fixed size, and optionally write them to files.
+	 * @param command : the command that starts the bot
+	 * @param transcriptSize : the number of characters of each stream that are kept in memory
+	 * @param spillPrefix : if not null, the whole transcripts are written compressed to this path followed by
+	 * ".stdin.gz", ".stdout.gz" and ".stderr.gz"
+	 */
+	public IOHandler(String command, int transcriptSize, File spillPrefix) throws IOException {
 		child = Runtime.getRuntime().exec(command);
-		in = new OutStream(child.getOutputStream());
-		out = new InStream(child.getInputStream());
-		err = new InStream(child.getErrorStream());
+		in = new OutStream(child.getOutputStream(), transcript(transcriptSize, spillPrefix, ".stdin.gz"));
+		out = new InStream(child.getInputStream(), transcript(transcriptSize, spillPrefix, ".stdout.gz"));
+		// the error stream is only kept for its transcript, nothing reads lines from it
+		err = new InStream(child.getErrorStream(), transcript(transcriptSize, spillPrefix, ".stderr.gz"), false);
 		out.start(); err.start();
 	}
 	
+	private static Transcript transcript(int size, File spillPrefix, String suffix) throws IOException {
+		if( spillPrefix == null ) {
+			return new Transcript(size);
+		}
+		return new Transcript(size, new File(spillPrefix.getPath() + suffix));
+	}
+	
 	public void stop() {
 		try {
 			in.close();
@@ -37,23 +58,54 @@ public class IOHandler {
 		} catch (InterruptedException e) {
 			e.printStackTrace();
 		}
+		in.getTranscript().close();
+		out.getTranscript().close();
+		err.getTranscript().close();
 	}
 	
+	/**
+	 * Sends the lines written since the last flush point to the bot, then waits for a line from the bot.
+	 */
 	public String readLine(long timeout) {
 		//System.err.printf("readLine(%d)\n", timeout);
-		if( !isRunning() ) { return null; }
+		if( !flush() ) { return null; }
+		return out.readLine(timeout);
+	}
+	
+	/**
+	 * Sends the lines written since the last flush point to the bot in one write.
+	 * @return false if the bot process has exited
+	 */
+	public boolean flush() {
+		if( !isRunning() ) {
+			exited = true;
+			return false;
+		}
 		try {
 			in.flush();
 		} catch (IOException e) {
 			// TODO Auto-generated catch block
 			//e.printStackTrace();
 		}
-		return out.readLine(timeout);
+		return true;
 	}
 	
+	/**
+	 * Skips the lines the bot wrote that have not been read yet.
+	 * @return the number of lines that were skipped
+	 */
+	public int discardLines() {
+		return out.discardLines();
+	}
+	
+	/**
+	 * Queues a line for the bot until the next flush point. Whether the process still runs is only checked at the
+	 * flush points, which saves an exception per line on a running process.
+	 * @return false if the bot process was found to have exited
+	 */
 	public boolean writeLine(String line) {
 		//System.err.printf("writeLine(\"%s\")\n", line);
-		if( !isRunning() ) { return false; }
+		if( exited ) { return false; }
 		try {
 			in.writeLine(line.trim());
 			return true;
@@ -63,6 +115,13 @@ public class IOHandler {
 		}
 	}
 	
+	/**
+	 * Returns the number of lines of the bot that are waiting to be read.
+	 */
+	public int getQueuedLines() {
+		return out.getQueuedLines() + err.getQueuedLines();
+	}
+	
 	public String getStdin() {
 		return in.getData();
 	}
@@ -1,5 +1,6 @@
 package nl.starapple.io;
 
+import java.io.File;
 import java.io.IOException;
 
 import nl.starapple.poker.HandInfo;
@@ -11,9 +12,45 @@ import nl.starapple.poker.Robot;
 public class IORobot implements Robot {
 
 	IOHandler handler;
+	final String command;
+	int matchesPlayed;	// kept by BotProcessPool
+	int unanswered;		// the "go" lines that timed out, whose replies are still to come
 
 	public IORobot(String command) throws IOException {
 		handler = new IOHandler(command);
+		this.command = command;
+	}
+
+	/**
+	 * Starts a bot process with transcripts of the given size; see {@link IOHandler#IOHandler(String, int, File)}.
+	 */
+	public IORobot(String command, int transcriptSize, File spillPrefix) throws IOException {
+		handler = new IOHandler(command, transcriptSize, spillPrefix);
+		this.command = command;
+	}
+
+	/**
+	 * Prepares the bot for another match with the "Settings newMatch N" handshake: the bot forgets the last match
+	 * and answers "ready N". Lines the bot wrote before are skipped.
+	 * @param number : the number N of the handshake
+	 * @param timeOut : the time in milliseconds the bot has to answer
+	 * @return whether the bot answered in time
+	 */
+	public synchronized boolean newMatch(int number, long timeOut) {
+		handler.discardLines();
+		handler.writeLine("Settings newMatch " + number);
+		String expected = "ready " + number;
+		long deadline = System.nanoTime() + timeOut * 1000000;
+		while( true ) {
+			long left = (deadline - System.nanoTime()) / 1000000;
+			String line = left > 0 ? handler.readLine(left) : null;
+			if( line == null ) { return false; }
+			if( line.trim().equals(expected) ) {
+				// the bot answers in order, so the replies to earlier "go" lines came before this one
+				unanswered = 0;
+				return true;
+			}
+		}
 	}
 
 	@Override
@@ -28,10 +65,23 @@ public class IORobot implements Robot {
     }
 	
     @Override
-	public PokerMove getMove(long timeOut) {
+	public synchronized PokerMove getMove(long timeOut) {
 		handler.writeLine("go "+timeOut);
-        String line = handler.readLine(timeOut);
-        if( line == null ) { return null; }
+		long deadline = System.nanoTime() + timeOut * 1000000;
+		String line;
+		while( true ) {
+			long left = (deadline - System.nanoTime()) / 1000000;
+			line = left > 0 ? handler.readLine(left) : null;
+			if( line == null ) {
+				// the bot may still answer this "go", that reply must not be taken as the answer to a later one
+				unanswered++;
+				return null;
+			}
+			if( unanswered == 0 ) { break; }
+			// every "go" gets one reply, so the first lines answer the "go" lines that timed out
+			unanswered--;
+			System.err.println("Skipped a late reply from the bot: " + line);
+		}
         String[] parts = line.split("\\s");
         assert( parts.length == 2 ) : String.format("Bot input ``%s'' does not split into two parts", line);
         return new PokerMove(parts[0], Integer.valueOf(parts[1]));
@@ -56,6 +106,14 @@ public class IORobot implements Robot {
 		handler.stop();
 	}
 
+	public boolean isRunning() {
+		return handler.isRunning();
+	}
+
+	public String getCommand() {
+		return command;
+	}
+
 	public String getStdin() {
 		return handler.getStdin();
 	}
@@ -2,97 +2,195 @@ package nl.starapple.io;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Queue;
 
+/**
+ * Reads the output of a bot process on its own thread and splits it into lines. The stream is read in blocks into a
+ * reused buffer; every byte is one character, as before. A line ends at "\n", "\r\n" or "\r", and complete lines are
+ * queued, so that a waiting readLine is woken only once a whole line has arrived. Everything read is also added to
+ * a {@link Transcript}. A stream that is only kept for its transcript, such as the error stream of a bot, is not split
+ * into lines at all.
+ * <p>
+ * The memory of a stream is bounded however much a bot writes: a line is cut off after MAX_LINE_LENGTH characters and
+ * at most MAX_QUEUED_LINES unread lines are kept, the oldest are dropped beyond that.
+ */
 public class InStream extends Thread {
 	
-	StringBuffer buffer;
+	private static final int BLOCK_SIZE = 8192;
+	/** The number of characters of a line that are kept, the rest of the line is dropped. */
+	public static final int MAX_LINE_LENGTH = 1 << 16;
+	/** The number of unread lines that are kept. */
+	public static final int MAX_QUEUED_LINES = 1 << 10;
 	
-	int bufIndex;
-	
-	InputStream in;
-	
-	Boolean stopping;
+	private final InputStream in;
+	private final Object lock = new Object();
+	private final Queue<String> lines = new ArrayDeque<String>();
+	private final StringBuilder partial = new StringBuilder();
+	private final char[] chars = new char[BLOCK_SIZE];
+	private final Transcript transcript;
+	private final boolean splitLines;
+	private boolean afterCR;		// whether the last character was '\r', so that a following '\n' is skipped
+	private boolean ended;			// whether the stream has ended
+	private volatile boolean stopping;
+	private long droppedLines;
 
 	public InStream(InputStream inputStream) {
+		this(inputStream, new Transcript());
+	}
+
+	/**
+	 * @param inputStream : the stream to read
+	 * @param transcript : the transcript that receives everything that is read
+	 */
+	public InStream(InputStream inputStream, Transcript transcript) {
+		this(inputStream, transcript, true);
+	}
+
+	/**
+	 * @param inputStream : the stream to read
+	 * @param transcript : the transcript that receives everything that is read
+	 * @param splitLines : whether the stream is split into lines for readLine; if not, it is only kept in the
+	 * transcript and readLine never returns a line
+	 */
+	public InStream(InputStream inputStream, Transcript transcript, boolean splitLines) {
 		in = inputStream;
-		buffer = new StringBuffer();
-		bufIndex = 0;
-		stopping = false;
+		this.transcript = transcript;
+		this.splitLines = splitLines;
 	}
-	
-	String[] newLines = new String[] {
-			"\r\n",
-			"\n",
-			"\r"
-	};
 
+	/**
+	 * Returns the next line, waiting at most the given time for it to arrive.
+	 * @param timeout : the maximal time to wait in milliseconds
+	 * @return the line, or null if none arrived in time, the stream ended or the thread was interrupted
+	 */
 	public String readLine(long timeout) {
-		long timeStart = System.currentTimeMillis();
-		synchronized( buffer ) {
-			while( true ) {
-				int nltype = 0, index = -1;
-				while( nltype < newLines.length ) {
-					index = buffer.indexOf(newLines[nltype], bufIndex);
-					if( index >= 0 ) { break; }
-					++nltype;
+		long deadline = System.nanoTime() + timeout * 1000000l;
+		synchronized( lock ) {
+			while( lines.isEmpty() ) {
+				long remaining = deadline - System.nanoTime();
+				if( ended || remaining <= 0 ) {
+					return null;
 				}
-				if( index < 0 ) {
-					long timeNow = System.currentTimeMillis();
-					long timeElapsed = timeNow - timeStart;
-					if( timeElapsed >= timeout ) {
-						return null;
-					}
-					try {
-						buffer.wait(timeout - timeElapsed);
-					} catch( InterruptedException e ) {
-						// Nothing
-					}
-				} else {
-					String line = buffer.substring(bufIndex, index);
-					//buffer.delete(0, index + newLines[nltype].length());
-					bufIndex = index + newLines[nltype].length();
-					return line;
+				try {
+					lock.wait(remaining / 1000000l, (int) (remaining % 1000000l));
+				} catch( InterruptedException e ) {
+					// the call was cancelled, for example because it took too long
+					Thread.currentThread().interrupt();
+					return null;
 				}
 			}
+			return lines.poll();
+		}
+	}
+
+	/**
+	 * Skips all complete lines that have not been read yet, such as a reply that came after its call timed out.
+	 * @return the number of lines that were skipped
+	 */
+	public int discardLines() {
+		synchronized( lock ) {
+			int skipped = lines.size();
+			lines.clear();
+			return skipped;
 		}
 	}
 
 	@Override
 	public void run() {
+		byte[] block = new byte[BLOCK_SIZE];
 		try {
-			while( true ) {
-				synchronized( stopping ) {
-					if( stopping ) {
-						break;
-					}
+			while( !stopping ) {
+				int n = in.read(block);
+				if( n < 0 ) {
+					break;
 				}
-				int ch = in.read();
-				if( ch >= 0 ) {
-					synchronized( buffer ) {
-						buffer.append((char) ch);
-						buffer.notify();
-					}
+				if( n > 0 ) {
+					addBlock(block, n);
 				}
 			}
 		} catch( IOException e ) {
-	        synchronized( stopping ) {
-                if( stopping ) {
-                    return;
-                }
-            }
-	        e.printStackTrace();
+			if( !stopping ) {
+				e.printStackTrace();
+			}
+		} finally {
+			synchronized( lock ) {
+				ended = true;
+				lock.notifyAll();
+			}
 		}
 	}
 
-	public void finish() {
-		synchronized( stopping ) {
-			stopping = true;
+	/**
+	 * Splits a block of input into lines and wakes the waiting readers once if it completed any.
+	 */
+	private void addBlock(byte[] block, int length) {
+		if( !splitLines ) {
+			for( int i = 0; i < length; i++ ) {
+				chars[i] = (char) (block[i] & 0xFF);
+			}
+			transcript.append(chars, 0, length);
+			return;
 		}
+		synchronized( lock ) {
+			boolean newLines = false;
+			for( int i = 0; i < length; i++ ) {
+				char ch = (char) (block[i] & 0xFF);
+				chars[i] = ch;
+				if( ch == '\n' && afterCR ) {
+					afterCR = false;		// the second half of "\r\n"
+					continue;
+				}
+				afterCR = ch == '\r';
+				if( ch == '\n' || ch == '\r' ) {
+					if( lines.size() == MAX_QUEUED_LINES ) {
+						lines.poll();
+						if( droppedLines++ == 0 ) {
+							System.err.println("A bot wrote more than " + MAX_QUEUED_LINES
+									+ " unread lines, the oldest are dropped");
+						}
+					}
+					lines.add(partial.toString());
+					partial.setLength(0);
+					newLines = true;
+				} else if( partial.length() < MAX_LINE_LENGTH ) {
+					partial.append(ch);
+				}
+			}
+			if( newLines ) {
+				lock.notifyAll();
+			}
+		}
+		transcript.append(chars, 0, length);
+	}
+
+	public void finish() {
+		stopping = true;
 	}
 	
 	public String getData() {
-		synchronized( buffer ) {
-			return buffer.toString();
+		return transcript.getData();
+	}
+
+	public Transcript getTranscript() {
+		return transcript;
+	}
+
+	/**
+	 * Returns the number of lines that are waiting to be read.
+	 */
+	public int getQueuedLines() {
+		synchronized( lock ) {
+			return lines.size();
+		}
+	}
+
+	/**
+	 * Returns the number of unread lines that were dropped because too many were queued.
+	 */
+	public long getDroppedLines() {
+		synchronized( lock ) {
+			return droppedLines;
 		}
 	}
 
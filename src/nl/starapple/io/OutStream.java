@@ -5,32 +5,78 @@ import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
 
+/**
+ * Writes lines to a bot process. Lines are collected in a batch that goes out as one write and one flush at the next
+ * flush point, which is when the bot has to answer, so that all messages a bot gets before a decision cost a single
+ * pipe write and a single wakeup of the bot. A batch that grows beyond BATCH_LIMIT characters is written out early.
+ */
 public class OutStream {
 	
-	StringBuffer buffer;
+	private static final int BATCH_LIMIT = 1 << 16;
+	
+	Transcript transcript;
 	
 	Writer out;
+	
+	private final StringBuilder batch = new StringBuilder(1024);
 
 	public OutStream(OutputStream outputStream) {
+		this(outputStream, new Transcript());
+	}
+
+	/**
+	 * @param outputStream : the stream to write to
+	 * @param transcript : the transcript that receives everything that is written
+	 */
+	public OutStream(OutputStream outputStream, Transcript transcript) {
 		out = new OutputStreamWriter(outputStream);
-		buffer = new StringBuffer();
+		this.transcript = transcript;
 	}
 	
-	public void flush() throws IOException {
+	/**
+	 * Writes the batch and flushes the stream.
+	 */
+	public synchronized void flush() throws IOException {
+		writeBatch();
 		out.flush();
 	}
 
-	public void writeLine(String line) throws IOException {
-		out.write(line + "\n");
-		buffer.append(line + "\n");
+	/**
+	 * Adds a line to the batch.
+	 */
+	public synchronized void writeLine(String line) throws IOException {
+		String text = line + "\n";
+		batch.append(text);
+		transcript.append(text);
+		if( batch.length() > BATCH_LIMIT ) {
+			writeBatch();
+		}
+	}
+	
+	private void writeBatch() throws IOException {
+		if( batch.length() > 0 ) {
+			out.append(batch);
+			batch.setLength(0);
+		}
 	}
 	
 	public String getData() {
-		return buffer.toString();
+		return transcript.getData();
+	}
+
+	public Transcript getTranscript() {
+		return transcript;
 	}
 
-	public void close() throws IOException {
-		out.close();
+	/**
+	 * Writes the last batch and closes the stream.
+	 */
+	public synchronized void close() throws IOException {
+		try {
+			flush();
+		} finally {
+			out.close();
+		}
 	}
 
 }
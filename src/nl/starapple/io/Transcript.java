@@ -0,0 +1,155 @@
+package nl.starapple.io;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The text that went through one stream of a bot, for debugging. Only the last characters are kept in memory, in a
+ * ring buffer of fixed capacity, so that a chatty bot cannot fill the heap over a long match. Optionally the whole
+ * text is also written to a gzip compressed file, which can be read with zcat once the transcript is closed.
+ */
+public class Transcript {
+	
+	/** The default number of characters that are kept in memory. */
+	public static final int DEFAULT_CAPACITY = 1 << 16;
+	
+	private final char[] ring;
+	private int start;			// the position of the oldest character in the ring
+	private int size;
+	private long total;			// the number of characters appended
+	private Writer spill;
+	private final File spillFile;
+
+	/**
+	 * Creates a transcript that keeps the last DEFAULT_CAPACITY characters in memory.
+	 */
+	public Transcript() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates a transcript that keeps the last characters in memory.
+	 * @param capacity : the number of characters that are kept
+	 */
+	public Transcript(int capacity) {
+		ring = new char[capacity];
+		spillFile = null;
+	}
+
+	/**
+	 * Creates a transcript that keeps the last characters in memory and writes all text compressed to a file.
+	 * @param capacity : the number of characters that are kept in memory
+	 * @param spillFile : the file for the whole text, which is overwritten
+	 */
+	public Transcript(int capacity, File spillFile) throws IOException {
+		ring = new char[capacity];
+		this.spillFile = spillFile;
+		spill = new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(new FileOutputStream(spillFile), 8192),
+				"UTF-8"), 8192);
+	}
+
+	/**
+	 * Appends characters to the transcript.
+	 */
+	public synchronized void append(char[] chars, int offset, int length) {
+		total += length;
+		writeSpill(chars, offset, length);
+		int capacity = ring.length;
+		if( length >= capacity ) {
+			// only the last characters stay
+			System.arraycopy(chars, offset + length - capacity, ring, 0, capacity);
+			start = 0;
+			size = capacity;
+			return;
+		}
+		int end = (start + size) % capacity;
+		int first = Math.min(length, capacity - end);
+		System.arraycopy(chars, offset, ring, end, first);
+		System.arraycopy(chars, offset + first, ring, 0, length - first);
+		int overflow = size + length - capacity;
+		if( overflow > 0 ) {
+			start = (start + overflow) % capacity;
+			size = capacity;
+		} else {
+			size += length;
+		}
+	}
+
+	/**
+	 * Appends text to the transcript.
+	 */
+	public void append(String text) {
+		append(text.toCharArray(), 0, text.length());
+	}
+
+	private void writeSpill(char[] chars, int offset, int length) {
+		if( spill == null ) {
+			return;
+		}
+		try {
+			spill.write(chars, offset, length);
+		} catch( IOException e ) {
+			e.printStackTrace();
+			closeSpill();
+		}
+	}
+
+	/**
+	 * Returns the characters that are kept in memory. If earlier characters were dropped, the text starts with a line
+	 * that says how many.
+	 */
+	public synchronized String getData() {
+		StringBuilder data = new StringBuilder(size + 64);
+		long dropped = total - size;
+		if( dropped > 0 ) {
+			data.append("[").append(dropped).append(" earlier characters dropped");
+			if( spillFile != null ) {
+				data.append(", see ").append(spillFile);
+			}
+			data.append("]\n");
+		}
+		int first = Math.min(size, ring.length - start);
+		data.append(ring, start, first);
+		data.append(ring, 0, size - first);
+		return data.toString();
+	}
+
+	/**
+	 * Returns the number of characters appended so far, including the dropped ones.
+	 */
+	public synchronized long getTotalLength() {
+		return total;
+	}
+
+	/**
+	 * Returns the file with the whole text, or null if there is none.
+	 */
+	public File getSpillFile() {
+		return spillFile;
+	}
+
+	/**
+	 * Finishes the spill file. The characters in memory stay available.
+	 */
+	public synchronized void close() {
+		closeSpill();
+	}
+
+	private void closeSpill() {
+		if( spill == null ) {
+			return;
+		}
+		try {
+			spill.close();
+		} catch( IOException e ) {
+			e.printStackTrace();
+		}
+		spill = null;
+	}
+
+}
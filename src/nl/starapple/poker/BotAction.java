@@ -1,11 +1,39 @@
 package nl.starapple.poker;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * Class that can be used to ask a bot to perform the next action within a certain amount of time. If the time
  * criterium is not met, it will return a null PokerMove.
+ * <p>
+ * The calls run on a shared pool of daemon threads that grows when calls are slow and shrinks again when threads are
+ * idle for a minute, so no thread is started per move. A call that takes too long is cancelled: its thread is
+ * interrupted and its result, should it still come, is dropped. A bot that ignores interrupts keeps its thread until
+ * it returns, but no longer holds up the match.
  */
 public class BotAction
 {
-	private PokerMove move = null;
+	private static final ExecutorService executor = Executors.newCachedThreadPool(new ThreadFactory()
+	{
+		private final AtomicInteger threadNumber = new AtomicInteger();
+		
+		@Override
+		public Thread newThread(Runnable task)
+		{
+			Thread thread = new Thread(task, "bot-action-" + threadNumber.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
+	
 	
 	/**
 	 * Queries and returns the next move of the given bot within the given time span. If the bot does not respond in
@@ -15,19 +43,14 @@ public class BotAction
 	 */
 	public PokerMove getMove(final Robot bot, final long timeOut)
 	{		
-		Thread actionThread = new Thread()
+		return call(new Callable<PokerMove>()
 		{
-	        public void run()
-	        {
-	        	move = bot.getMove(timeOut);
-	        }
-		};
-		
-		actionThread.start();
-		try{ actionThread.join(timeOut); }
-			catch(InterruptedException e){ e.printStackTrace(); }
-		
-		return move;
+			@Override
+			public PokerMove call()
+			{
+				return bot.getMove(timeOut);
+			}
+		}, timeOut);
 	}
 	
 	
@@ -39,16 +62,42 @@ public class BotAction
 	 */
 	public void setup(final Robot bot, final long timeOut)
 	{		
-		Thread actionThread = new Thread()
+		call(new Callable<Object>()
 		{
-	        public void run()
-	        {
-	        	bot.setup(timeOut);
-	        }
-		};
-		
-		actionThread.start();
-		try{ actionThread.join(timeOut); }
-			catch(InterruptedException e){ e.printStackTrace(); }
+			@Override
+			public Object call()
+			{
+				bot.setup(timeOut);
+				return null;
+			}
+		}, timeOut);
+	}
+	
+	
+	/**
+	 * Runs a call to a bot on the pool and waits at most the given time for its result. Returns null when the call
+	 * fails, takes too long or the waiting thread is interrupted; in the last two cases the call is cancelled.
+	 */
+	private static <T> T call(Callable<T> botCall, long timeOut)
+	{
+		Future<T> future = executor.submit(botCall);
+		try
+		{
+			return future.get(timeOut, TimeUnit.MILLISECONDS);
+		}
+		catch(TimeoutException e)
+		{
+			future.cancel(true);
+		}
+		catch(InterruptedException e)
+		{
+			future.cancel(true);
+			Thread.currentThread().interrupt();
+		}
+		catch(ExecutionException e)
+		{
+			e.getCause().printStackTrace();
+		}
+		return null;
 	}
 }
@@ -4,20 +4,35 @@ import java.util.HashMap;
 import java.util.Map;
 
 /**
- * A Card class object represents one card
+ * A Card class object represents one card. There is exactly one instance of each of the 52 cards, which is immutable
+ * and holds its encoding, string, height and suit; cards are obtained with {@link #getCard(int)} and
+ * {@link #getCard(String)}, so dealing and parsing cards allocates nothing.
  */
 public class Card
 {
-	private CardHeight height;
-	private CardSuit suit;
-	private int number;
-	private static Map<String,Card> stringToCard;
+	private static final Card[] cards = new Card[52];
+	private static final Map<String,Card> stringToCard = new HashMap<String,Card>();
+
+	static
+	{
+		for(int i = 0; i < 52; ++i)
+		{
+			cards[i] = new Card(i);
+			stringToCard.put(cards[i].toString(), cards[i]);
+		}
+	}
+
+	private final CardHeight height;
+	private final CardSuit suit;
+	private final int number;
+	private final long mask;
+	private final String string;
 
 	
 	/**
 	 * Creates a card object based on a number between 0 and 51
 	 */
-	public Card(int num)
+	private Card(int num)
 	{
 		number = num;
 		int findSuit = number / 13;
@@ -46,26 +61,28 @@ public class Card
 			case 11 : height = CardHeight.KING; break;
 			default : height = CardHeight.ACE;
 		}
+
+		mask = 1l << (16*findSuit + findHeight);
+		string = createString();
 	}
 	
 	
+	/**
+	 * Returns the Card with the given number between 0 and 51: 13 times the suit (spades, hearts, clubs, diamonds)
+	 * plus the height (deuce to ace).
+	 */
+	public static Card getCard(int number)
+	{
+		return cards[number];
+	}
+	
 	
 	/**
-	 * Returns the Card object that corresponds with the given card string. The first time this method is called, a
-	 * map of all Cards corresponding with correct input strings is created.
+	 * Returns the Card object that corresponds with the given card string, or null if the string is not a card.
 	 * @param string : the string to be converted to a Card
 	 */
 	public static Card getCard(String string)
 	{
-		if(stringToCard == null)
-		{
-			stringToCard = new HashMap<String,Card>();
-			for(int i = 0; i < 52; ++i)
-			{
-				Card card = new Card(i);
-				stringToCard.put(card.toString(), card);
-			}
-		}
 		return stringToCard.get(string);
 	}
 
@@ -75,9 +92,16 @@ public class Card
 	 */
 	public long getNumber()
 	{
-		int suitShift = number / 13;
-		int heightShift = number % 13;
-		return (1l << (16*suitShift + heightShift));
+		return mask;
+	}
+	
+	
+	/**
+	 * Returns the number of the card between 0 and 51, as given to {@link #getCard(int)}.
+	 */
+	public int getIndex()
+	{
+		return number;
 	}
 	
 	
@@ -103,6 +127,12 @@ public class Card
 	 * Returns a String representation of this card.
 	 */
 	public String toString()
+	{
+		return string;
+	}
+	
+	
+	private String createString()
 	{
 		String str = null;
 		int findHeight = number % 13;
@@ -1,41 +1,75 @@
 package nl.starapple.poker;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
+import java.util.Random;
 
 /**
  * Class representing a single deck of cards, which is shuffled in random order.
  * Cards can be drawn from the deck.
+ * <p>
+ * The deck is an array of the card numbers 0 to 51 that is shuffled lazily: each drawn card is swapped in from a
+ * random position among the cards that are left, which is a Fisher-Yates shuffle of only the cards that are dealt.
+ * The random generator is pluggable, for example a seeded one to replay a match or a SecureRandom for official
+ * matches.
  */
 public class Deck
 {
-	private List<Integer> cardOrder;
+	private static final int DECK_SIZE = 52;
+	private static final int[] ORDER = new int[DECK_SIZE];
+	
+	static
+	{
+		for(int i = 0; i < DECK_SIZE; i++)
+			ORDER[i] = i;
+	}
+	
+	private final int[] cardOrder = new int[DECK_SIZE];
+	private int dealt;
+	private Random random;
 	
 	
 	/**
-	 * Creates a new deck of 52 cards, represented by integers 0 to 51, which are
-	 * then shuffled.
+	 * Creates a new deck of 52 cards, represented by integers 0 to 51, which is shuffled with a new unseeded
+	 * random generator.
 	 */
 	public Deck()
 	{
-		cardOrder = new ArrayList<Integer>();
-		for(int i = 0; i < 52; i++)
-			cardOrder.add(i);
-		
-		Collections.shuffle(cardOrder);
+		this(new Random());
 	}
 	
 	
 	/**
-	 * Refreshes the deck such that it is a shuffled deck of 52 cards again
+	 * Creates a new deck of 52 cards, represented by integers 0 to 51, which is shuffled with the given random
+	 * generator.
+	 * @param random : the random generator; with the same seed, the deck deals the same cards
+	 */
+	public Deck(Random random)
+	{
+		this.random = random;
+		resetDeck();
+	}
+	
+	
+	/**
+	 * Refreshes the deck such that it is a shuffled deck of 52 cards again. The cards that are dealt next only depend
+	 * on the random generator, not on the cards dealt before.
 	 */
 	public void resetDeck()
 	{
-		cardOrder = new ArrayList<Integer>();
-		for(int i = 0; i < 52; i++)
-			cardOrder.add(i);
-		
-		Collections.shuffle(cardOrder);
+		System.arraycopy(ORDER, 0, cardOrder, 0, DECK_SIZE);
+		dealt = 0;
+	}
+	
+	
+	/**
+	 * Refreshes the deck and reseeds its random generator, so that the cards that are dealt next only depend on the
+	 * seed. Duplicate matches use this to deal the same cards in each hand of both matches. Only generators whose
+	 * setSeed replaces their state, like Random and XoroshiroRandom, give a deterministic deck; a SecureRandom mixes
+	 * the seed into its state instead.
+	 * @param seed : the seed of the hand
+	 */
+	public void resetDeck(long seed)
+	{
+		random.setSeed(seed);
+		resetDeck();
 	}
 	
 	
@@ -44,14 +78,16 @@ public class Deck
 	 */
 	public Card nextCard()
 	{
-		if(cardOrder.size() <= 0)
+		if(dealt >= DECK_SIZE)
 		{
 			System.err.println("The deck is empty");
 			return null;
 		}
-			
-		int nextCardNumber = cardOrder.remove(cardOrder.size() - 1);
-		Card card = new Card(nextCardNumber);
-		return card;
+		
+		int position = dealt + random.nextInt(DECK_SIZE - dealt);
+		int nextCardNumber = cardOrder[position];
+		cardOrder[position] = cardOrder[dealt];
+		cardOrder[dealt++] = nextCardNumber;
+		return Card.getCard(nextCardNumber);
 	}
 }
@@ -12,10 +12,10 @@ public class HandInfo
 	private Hand myHand;
 	private int buttonSeat;
 	private String table;
-	private ArrayList<Integer> pots;
+	private int[] pots;
 	
 	public HandInfo(HandInfoType type, int roundNumber, ArrayList<PokerBot> botList, int[] stacks, int bigBlindSize, int smallBlindSize,
-					 int button, String tableCards, ArrayList<Integer> allPots)
+					 int button, String tableCards, int[] allPots)
 	{
 		infoType = type;
 		round = roundNumber;
@@ -73,10 +73,10 @@ public class HandInfo
 		
 		if( infoType.equals(HandInfoType.PREMOVE_INFO) )
 		{
-			str += String.format("Match pot %d\n", pots.get(0));
+			str += String.format("Match pot %d\n", pots[0]);
 			str += String.format("Match sidepots [");
-			for(int i = 1; i < pots.size(); i++)
-				str += ((i>1)?",":"") + pots.get(i);
+			for(int i = 1; i < pots.length; i++)
+				str += ((i>1)?",":"") + pots[i];
 			str += "]\n";
 		}
 		return str;
@@ -0,0 +1,142 @@
+package nl.starapple.poker;
+
+/**
+ * Histogram of response times with a fixed relative precision, in the manner of an HDR histogram. Times are counted
+ * in microseconds: below 64 every microsecond has its own bucket, above that every power of two is split into 32
+ * buckets, so a bucket is never wider than about 3% of the times in it. Times up to about 12 days fit in 1184 buckets,
+ * longer times are counted in the last one. Recording is a few instructions and allocates nothing.
+ * <p>
+ * Not thread-safe; a histogram is filled by one match and merged into totals with {@link #add(LatencyHistogram)}.
+ */
+public class LatencyHistogram
+{
+	private static final int SUB_BUCKETS = 64;
+	private static final int HALF = SUB_BUCKETS / 2;
+	private static final int MAX_SHIFT = 35;
+	private static final int BUCKETS = SUB_BUCKETS + MAX_SHIFT * HALF;
+	
+	private final long[] counts = new long[BUCKETS];
+	private long count;
+	private long totalNanos;
+	private long maxNanos;
+	
+	
+	/**
+	 * Counts one response time.
+	 * @param nanos : the time in nanoseconds
+	 */
+	public void record(long nanos)
+	{
+		nanos = Math.max(nanos, 0);
+		counts[bucket(nanos / 1000)]++;
+		count++;
+		totalNanos += nanos;
+		maxNanos = Math.max(maxNanos, nanos);
+	}
+	
+	
+	/**
+	 * Adds all times counted by another histogram to this one.
+	 */
+	public void add(LatencyHistogram other)
+	{
+		for(int i = 0; i < BUCKETS; i++)
+			counts[i] += other.counts[i];
+		count += other.count;
+		totalNanos += other.totalNanos;
+		maxNanos = Math.max(maxNanos, other.maxNanos);
+	}
+	
+	
+	private static int bucket(long micros)
+	{
+		if(micros < SUB_BUCKETS)
+			return (int) micros;
+		int shift = 63 - Long.numberOfLeadingZeros(micros) - 5;
+		if(shift > MAX_SHIFT)
+			return BUCKETS - 1;
+		return SUB_BUCKETS + (shift - 1) * HALF + (int) (micros >>> shift) - HALF;
+	}
+	
+	
+	/**
+	 * Returns the highest time in microseconds that falls in the given bucket.
+	 */
+	private static long bucketTop(int bucket)
+	{
+		if(bucket < SUB_BUCKETS)
+			return bucket;
+		int shift = (bucket - SUB_BUCKETS) / HALF + 1;
+		long top = (bucket - SUB_BUCKETS) % HALF + HALF;
+		return ((top + 1) << shift) - 1;
+	}
+	
+	
+	/**
+	 * Returns the number of times counted.
+	 */
+	public long getCount()
+	{
+		return count;
+	}
+	
+	
+	/**
+	 * Returns the mean time in nanoseconds, or 0 if nothing was counted.
+	 */
+	public double getMeanNanos()
+	{
+		return count == 0 ? 0 : (double) totalNanos / count;
+	}
+	
+	
+	/**
+	 * Returns the longest time counted, in nanoseconds.
+	 */
+	public long getMaxNanos()
+	{
+		return maxNanos;
+	}
+	
+	
+	/**
+	 * Returns the time in nanoseconds that the given percentage of the times does not exceed, to the precision of
+	 * the buckets, or 0 if nothing was counted.
+	 * @param percentile : the percentage, from 0 to 100
+	 */
+	public long getPercentileNanos(double percentile)
+	{
+		long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+		long seen = 0;
+		for(int i = 0; i < BUCKETS; i++)
+		{
+			seen += counts[i];
+			if(seen >= rank)
+				return Math.min(bucketTop(i) * 1000 + 999, maxNanos);
+		}
+		return maxNanos;
+	}
+	
+	
+	/**
+	 * Returns the number of times that were longer than the given time, to the precision of the buckets.
+	 * @param nanos : the time in nanoseconds
+	 */
+	public long getCountAbove(long nanos)
+	{
+		long above = 0;
+		for(int i = bucket(Math.max(nanos, 0) / 1000) + 1; i < BUCKETS; i++)
+			above += counts[i];
+		return above;
+	}
+	
+	
+	/**
+	 * Returns the number of times, the mean, the median, the 90th and 99th percentile and the maximum in milliseconds.
+	 */
+	public String toString()
+	{
+		return String.format("n=%d mean=%.3f p50=%.3f p90=%.3f p99=%.3f max=%.3f ms", count, getMeanNanos() / 1e6,
+				getPercentileNanos(50) / 1e6, getPercentileNanos(90) / 1e6, getPercentileNanos(99) / 1e6, maxNanos / 1e6);
+	}
+}
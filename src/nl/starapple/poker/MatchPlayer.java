@@ -5,7 +5,9 @@ import java.util.HashMap;
 import java.util.Random;
 import java.util.Vector;
 
-import com.stevebrecher.HandEval;
+import nl.starapple.eval.Evaluator;
+import nl.starapple.history.AsyncHistorySink;
+import nl.starapple.history.HandHistorySink;
 
 /**
  * Class that is the engine for playing a game of poker at one table. It regulates all the actions and information
@@ -23,9 +25,11 @@ public class MatchPlayer
 	private Vector<Card> tableCards;
 	private BetRound round;
 	private Hand[] botHands;
-	private String handHistory;
+	private StringBuilder handHistory;
+	private HandHistorySink historySink;
 	private int[] botStacks;
-	private long[] botTimeBanks;
+	private long[] botTimeBanks;		// in nanoseconds
+	private LatencyHistogram[][] botLatencies;	// per seat and bet round
 	private int buttonSeat;
 	private int activeSeat;
 	private int lastToActSeat;
@@ -37,6 +41,12 @@ public class MatchPlayer
 	private boolean isTournament;
 	private int[] botBetsThisRound;
 	private int[] botGainLoss;
+	private Evaluator evaluator;
+	private boolean seededHands;
+	private long handSeed;
+	private int handLimit = Integer.MAX_VALUE;
+	private boolean directMoves;
+	private boolean timedDirectMoves;
 	
 	private final int SIZE_STARTSTACK = 1500;
 	private final int[] BLINDLEVELHEIGHTS = {20, 40, 60, 100, 150, 200, 300, 400, 600, 800, 1000, 1500, 2000, 3000};
@@ -55,6 +65,22 @@ public class MatchPlayer
 	* @param tournamentMode : whether it is a tournament or not
 	*/
 	public MatchPlayer(Collection<PokerBot> botList, String typeOfGame, boolean tournamentMode)
+	{
+		this(botList, typeOfGame, tournamentMode, new Random());
+	}
+	
+	
+	/**
+	* Setup a table with the given bots and random generator, so that a match can be played. The random generator
+	* shuffles the deck and picks the first button, so a seeded generator makes the cards of the whole match
+	* reproducible.
+	* @param botList : the bots that are on the table
+	* @param typeOfGame : the type of game that is played
+	* @param tournamentMode : whether it is a tournament or not
+	* @param random : the random generator, for example a seeded XoroshiroRandom, or a SecureRandom for official
+	* matches
+	*/
+	public MatchPlayer(Collection<PokerBot> botList, String typeOfGame, boolean tournamentMode, Random random)
 	{
 		gameType = typeOfGame;
 		handNumber = 0;
@@ -63,20 +89,22 @@ public class MatchPlayer
 		numberOfBots = botList.size();
 		botStacks = new int[numberOfBots];
 		botTimeBanks = new long[numberOfBots];
+		botLatencies = new LatencyHistogram[numberOfBots][BetRound.values().length];
 		for(int i = 0; i < numberOfBots; i++)
 		{
 			botStacks[i] = SIZE_STARTSTACK;
-			botTimeBanks[i] = TIMEBANK_MAX;
+			botTimeBanks[i] = TIMEBANK_MAX * 1000000l;
+			for(int j = 0; j < BetRound.values().length; j++)
+				botLatencies[i][j] = new LatencyHistogram();
 		}
 		
 		sizeBB = BLINDLEVELHEIGHTS[0];
 		sizeSB = sizeBB / 2;
 		pot = new Pot(bots);
-		deck = new Deck();
+		deck = new Deck(random);
 		tableCards = new Vector<Card>();
 		botHands = new Hand[numberOfBots];
-		handHistory = "";
-		Random random = new Random();
+		handHistory = new StringBuilder(4096);
 		buttonSeat = random.nextInt(numberOfBots);
 		activeSeat = 0;
 		isInvolvedInHand = new boolean[numberOfBots];
@@ -90,24 +118,130 @@ public class MatchPlayer
 		botBetsThisRound = new int[numberOfBots];
 		if(!isTournament)
 			botGainLoss = new int[numberOfBots];
+		evaluator = Evaluator.BRECHER;
+	}
+	
+	
+	/**
+	 * Sets the evaluator that is used to compare the hands of the bots on a showdown. All evaluators give identical
+	 * results, they only differ in speed.
+	 * @param handEvaluator : the 7-card evaluator to use
+	 */
+	public void setEvaluator(Evaluator handEvaluator)
+	{
+		evaluator = handEvaluator;
+	}
+	
+	
+	/**
+	 * Sets the sink that receives the history of each hand. The caller stays responsible for closing it; runMatch only
+	 * flushes it at the end of the match. Without a sink, each match writes to the standard out channel through its
+	 * own background writer.
+	 * @param sink : the hand history sink, or null for the default
+	 */
+	public void setHistorySink(HandHistorySink sink)
+	{
+		historySink = sink;
+	}
+	
+	
+	/**
+	 * Lets the match thread call Robot.getMove directly instead of through a BotAction, which starts a thread for
+	 * every move. This is only for trusted in-process bots, in bulk simulations, self-play and benchmarks: a bot that
+	 * does not return hangs the match. When timed, the time of each move is measured with System.nanoTime and charged
+	 * to the time bank, and a move that took longer than the time bank is dropped like a move that came too late.
+	 * Untimed, the clock is not read at all and the time banks stay full.
+	 * @param direct : whether moves are asked directly on the match thread
+	 * @param timed : whether direct moves are timed against the time bank
+	 */
+	public void setDirectMoves(boolean direct, boolean timed)
+	{
+		directMoves = direct;
+		timedDirectMoves = timed;
+	}
+	
+	
+	/**
+	 * Deals every hand from a deck that is reseeded with this seed and the hand number, so that the cards of a hand
+	 * do not depend on how the hands before it went. Two matches with the same hand seed and the same random
+	 * generator seed deal the same cards to the same seats in every hand, which duplicate matches rely on.
+	 * @param seed : the seed of the hands of this match
+	 */
+	public void setHandSeed(long seed)
+	{
+		seededHands = true;
+		handSeed = seed;
+	}
+	
+	
+	/**
+	 * Ends the match after the given number of hands. When the match is not a tournament, the stacks are reset every
+	 * hand, so the match then plays exactly this number of hands.
+	 * @param hands : the maximal number of hands
+	 */
+	public void setHandLimit(int hands)
+	{
+		handLimit = hands;
+	}
+	
+	
+	/**
+	 * Returns the chips each bot won or lost in the match so far, including the last hand that was played.
+	 */
+	public int[] getChipResults()
+	{
+		int[] chips = new int[numberOfBots];
+		for(int i = 0; i < numberOfBots; i++)
+		{
+			chips[i] = botStacks[i] - SIZE_STARTSTACK;
+			if(!isTournament)
+				chips[i] += botGainLoss[i];
+		}
+		return chips;
+	}
+	
+	
+	/**
+	 * Returns the response times of a bot in one bet round of all hands so far. Untimed direct moves are not counted.
+	 * @param seat : the seat of the bot
+	 * @param betRound : the bet round
+	 */
+	public LatencyHistogram getLatencies(int seat, BetRound betRound)
+	{
+		return botLatencies[seat][betRound.ordinal()];
+	}
+	
+	
+	/**
+	 * Returns the number of the current hand, which is the number of hands played once the match is over.
+	 */
+	public int getHandNumber()
+	{
+		return handNumber;
 	}
 	
 	
 	/**
-	 * Starts the match. Plays hands until one of the bots has no chips left.
+	 * Starts the match. Plays hands until one of the bots has no chips left or the hand limit is reached; a match
+	 * that is not a tournament and has a hand limit plays all its hands, as the stacks are reset every hand.
 	 */
 	public int[] runMatch()
 	{
-		handHistory += "Settings gameType " + gameType;
-		handHistory += "\nSettings timeBank " + TIMEBANK_MAX;
-		handHistory += "\nSettings timeTurn " + TIME_PER_MOVE;
-		handHistory += "\nSettings players " + numberOfBots;
+		boolean ownSink = historySink == null;
+		if(ownSink)
+			historySink = new AsyncHistorySink();
+		
+		handHistory.append("Settings gameType ").append(gameType);
+		handHistory.append("\nSettings timeBank ").append(TIMEBANK_MAX);
+		handHistory.append("\nSettings timeTurn ").append(TIME_PER_MOVE);
+		handHistory.append("\nSettings players ").append(numberOfBots);
 		for(int i = 0; i < numberOfBots; i++)
-			handHistory += String.format("\nSettings seat%d %s", i, bots.get(i).getName());
+			handHistory.append("\nSettings seat").append(i).append(' ').append(bots.get(i).getName());
 		
 		sendMatchInfo();
 		
-		while(botStacks[0] > 0 && botStacks[1] > 0)
+		boolean playToLimit = !isTournament && handLimit < Integer.MAX_VALUE;
+		while(handNumber < handLimit && (playToLimit || botStacks[0] > 0 && botStacks[1] > 0))
 		{
 			if(isTournament && handNumber == (blindLevel + 1) * HANDS_PER_BLINDLEVEL &&
 			   sizeBB < BLINDLEVELHEIGHTS[BLINDLEVELHEIGHTS.length - 1])
@@ -119,6 +253,14 @@ public class MatchPlayer
 			playHand();
 			writeHistory();
 		}
+		
+		if(ownSink)
+		{
+			historySink.close();
+			historySink = null;
+		}
+		else
+			historySink.flush();
 	
         if( botStacks[0] > botStacks[1] )
         	return new int[] { 2, 0 };
@@ -176,7 +318,10 @@ public class MatchPlayer
 	{
 		handNumber++;
 		tableCards = new Vector<Card>();
-		deck.resetDeck();
+		if(seededHands)
+			deck.resetDeck(handSeed + handNumber * 0x9E3779B97F4A7C15l);
+		else
+			deck.resetDeck();
 		pot = new Pot(bots);
 		round = BetRound.PREFLOP;
 		
@@ -201,9 +346,9 @@ public class MatchPlayer
 		//System.out.println("Stack bot 0: " + botStacks[0]);
 		//System.out.println("Stack bot 1: " + botStacks[1]);
 		sendHandInfo(HandInfoType.HAND_START);
-		handHistory += String.format("\nMatch hand %d", handNumber);
-		handHistory += String.format("\n%s stack %d", bots.get(0).getName(), botStacks[0]);
-		handHistory += String.format("\n%s stack %d", bots.get(1).getName(), botStacks[1]);
+		handHistory.append("\nMatch hand ").append(handNumber);
+		handHistory.append('\n').append(bots.get(0).getName()).append(" stack ").append(botStacks[0]);
+		handHistory.append('\n').append(bots.get(1).getName()).append(" stack ").append(botStacks[1]);
 	}
 	
 	
@@ -284,13 +429,38 @@ public class MatchPlayer
 				return;
 			
 			sendHandInfo(HandInfoType.PREMOVE_INFO);
-			long startTime = System.currentTimeMillis();
-			PokerMove nextMove = (new BotAction()).getMove(bots.get(activeSeat).getBot(), botTimeBanks[activeSeat]);
-			long timeElapsed = System.currentTimeMillis() - startTime;
+			Robot bot = bots.get(activeSeat).getBot();
+			PokerMove nextMove;
+			long timeBank = botTimeBanks[activeSeat] / 1000000;
+			long timeElapsed;	// in nanoseconds, on the monotonic clock
+			if(!directMoves)
+			{
+				long startTime = System.nanoTime();
+				nextMove = (new BotAction()).getMove(bot, timeBank);
+				timeElapsed = System.nanoTime() - startTime;
+			}
+			else if(timedDirectMoves)
+			{
+				long startTime = System.nanoTime();
+				nextMove = bot.getMove(timeBank);
+				timeElapsed = System.nanoTime() - startTime;
+				if(timeElapsed > botTimeBanks[activeSeat])
+					nextMove = null;
+			}
+			else
+			{
+				nextMove = bot.getMove(timeBank);
+				timeElapsed = -1;
+			}
 			
 			// update the timebank of the current bot with the elapsed time and increment it for the next move
-			botTimeBanks[activeSeat] = Math.max(botTimeBanks[activeSeat] - timeElapsed, 0);
-			botTimeBanks[activeSeat] = Math.min(botTimeBanks[activeSeat] + TIME_PER_MOVE, TIMEBANK_MAX);
+			if(timeElapsed >= 0)
+			{
+				botLatencies[activeSeat][round.ordinal()].record(timeElapsed);
+				botTimeBanks[activeSeat] = Math.max(botTimeBanks[activeSeat] - timeElapsed, 0);
+			}
+			botTimeBanks[activeSeat] = Math.min(botTimeBanks[activeSeat] + TIME_PER_MOVE * 1000000l,
+												TIMEBANK_MAX * 1000000l);
 			
 			if(nextMove == null)
 			{
@@ -371,7 +541,8 @@ public class MatchPlayer
 			
 			// send a message to all other bots about the action
 			// handHistory += String.format("\n%s %s %d", bots.get(activeSeat).getName(), botAction, botActionAmount);
-			handHistory += String.format("\n%s %s %d", bots.get(activeSeat).getName(), botAction, botBetsThisRound[activeSeat]);
+			handHistory.append('\n').append(bots.get(activeSeat).getName()).append(' ').append(botAction).append(' ')
+					   .append(botBetsThisRound[activeSeat]);
 			//System.out.println("|_| Total pot size: " + pot.getCurrentPotSize());
 			sendMoveInfo(botAction, botActionAmount);
 		}
@@ -399,7 +570,7 @@ public class MatchPlayer
 			Card card1 = deck.nextCard();
 			Card card2 = deck.nextCard();
 			botHands[i] = new Hand(card1, card2);
-			handHistory += String.format("\n%s hand %s", bots.get(i).getName(), botHands[i].toString());
+			handHistory.append('\n').append(bots.get(i).getName()).append(" hand ").append(botHands[i].toString());
 			//System.out.println("Bot " + i + " hand: " + botHands[i].toString());
 		}
 		sendHandInfo(HandInfoType.HAND_CARDS);
@@ -432,14 +603,15 @@ public class MatchPlayer
 			
 		sendHandInfo(HandInfoType.NEW_BETROUND);
 		//System.out.println(table + "]");
-		if(!handHistory.endsWith("]"))
+		// no pot lines when nothing happened since the previous table line, which ends with ']'
+		if(handHistory.charAt(handHistory.length() - 1) != ']')
 		{
-			ArrayList<Integer> allPots = pot.getPots(botsInvolvedToArrayList());			
-			handHistory += String.format("\nMatch pot %d", allPots.get(0));
-			for(int i = 1; i < allPots.size(); i++)
-				handHistory += String.format("\nMatch sidepot%d %d", i, allPots.get(i));
+			int[] allPots = pot.getPots(isInvolvedInHand);
+			handHistory.append("\nMatch pot ").append(allPots[0]);
+			for(int i = 1; i < allPots.length; i++)
+				handHistory.append("\nMatch sidepot").append(i).append(' ').append(allPots[i]);
 		}
-		handHistory += "\nMatch table " + table;
+		handHistory.append("\nMatch table ").append(table);
 		
 		return true;
 	}
@@ -457,14 +629,14 @@ public class MatchPlayer
 			nextBotActive();
 		botBetsThisRound[activeSeat] = placeBet(sizeSB);		
 		//System.out.println("Bot " + activeSeat + " pays SB of " + botBetsThisRound[activeSeat]);
-		handHistory += String.format("\n%s post %s", bots.get(activeSeat).getName(), botBetsThisRound[activeSeat]);
+		handHistory.append('\n').append(bots.get(activeSeat).getName()).append(" post ").append(botBetsThisRound[activeSeat]);
 		sendMoveInfo("post", botBetsThisRound[activeSeat]);
 		
 		// the bot behind the small blind pays the big blind
 		nextBotActive();
 		botBetsThisRound[activeSeat] = placeBet(sizeBB);
 		//System.out.println("Bot " + activeSeat + " pays BB of " + botBetsThisRound[activeSeat]);
-		handHistory += String.format("\n%s post %s", bots.get(activeSeat).getName(), botBetsThisRound[activeSeat]);
+		handHistory.append('\n').append(bots.get(activeSeat).getName()).append(" post ").append(botBetsThisRound[activeSeat]);
 		sendMoveInfo("post", botBetsThisRound[activeSeat]);
 	}
 	
@@ -483,7 +655,7 @@ public class MatchPlayer
 		
 		botStacks[activeSeat] -= size;
 		botBetsThisRound[activeSeat] += size;
-		pot.addBet(bots.get(activeSeat), size);
+		pot.addBet(activeSeat, size);
 		return size;
 	}
 
@@ -508,7 +680,7 @@ public class MatchPlayer
 				playerCombinationCode = tableCardsCode;
 				playerCombinationCode += botHands[i].getCard1().getNumber();
 				playerCombinationCode += botHands[i].getCard2().getNumber();
-				botHandStrengths.put(bots.get(i), HandEval.hand7Eval(playerCombinationCode));
+				botHandStrengths.put(bots.get(i), evaluator.hand7Eval(playerCombinationCode));
 			}
 		}
 		int numberOfBotsOnShowdown = botHandStrengths.size();
@@ -548,9 +720,9 @@ public class MatchPlayer
 			potWinnersStr += "]";
 
 			if(i > 0)
-				handHistory += String.format("\nResult sidepot%d %s", i, potWinnersStr);
+				handHistory.append("\nResult sidepot").append(i).append(' ').append(potWinnersStr);
 			else
-				handHistory += String.format("\nResult pot %s", potWinnersStr);			
+				handHistory.append("\nResult pot ").append(potWinnersStr);
 		}
 
 		for(int i = 0; i < numberOfBots; i++)
@@ -561,19 +733,6 @@ public class MatchPlayer
 	}
 	
 	
-	/**
-	 * Returns an ArrayList of all bots that are marked as involved.
-	 */
-	private ArrayList<PokerBot> botsInvolvedToArrayList()
-	{
-		ArrayList<PokerBot> botsInvolved = new ArrayList<PokerBot>();
-		for(int i = 0; i < isInvolvedInHand.length; i++)
-			if(isInvolvedInHand[i])
-				botsInvolved.add(bots.get(i));		
-		return botsInvolved;
-	}
-	
-	
 	/**
 	 * Sends the match info to all the bots that are playing at this table. Gives the bots some time to prepare for 
 	 * playing a match, the method waits for all bots to return from setup for a maximum time of 'SETUP_TIME'. This
@@ -621,7 +780,7 @@ public class MatchPlayer
 	 */
 	private void sendHandInfo(HandInfoType type)
 	{
-		ArrayList<Integer> allPots = pot.getPots(botsInvolvedToArrayList());
+		int[] allPots = pot.getPots(isInvolvedInHand);
 		HandInfo info = new HandInfo(type, handNumber, bots, botStacks, sizeBB, sizeSB, buttonSeat,
 									   tableCards.toString().replaceAll("\\s", ""), allPots);
 		// The pre-move info only goes to the active bot.
@@ -673,12 +832,12 @@ public class MatchPlayer
 	
 	
 	/**
-	 * Writes the history that is currently stored in 'handHistory' to the standard out channel and empties the String
+	 * Passes the history that is currently stored in 'handHistory' to the history sink and empties the buffer
 	 * afterwards. Should be called after each finished hand.
 	 */
 	private void writeHistory()
 	{
-		System.out.println(handHistory);
-		handHistory = "";
+		historySink.writeHand(handHistory);
+		handHistory.setLength(0);
 	}
 }
@@ -3,30 +3,37 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.Iterator;
-import java.util.Map;
 import java.util.Map.Entry;
 
 /**
  * Class Pot is used for keeping track of the pot size, both from the main pot and
  * the possible side pots, and the players that are involved in the side pots.
+ * <p>
+ * The bets are kept per seat in a primitive array. The main pot and side pots are computed in one pass over the bets
+ * in sorted order and cached until the next bet or until other bots are involved.
  */
 public class Pot
 {
-	private Map<PokerBot, Integer> botBetSizes;
+	private PokerBot[] seats;
+	private int[] botBetSizes;
 	private int totalPot;
 	
+	private int[] cachedPots;
+	private long cachedInvolvedSeats;
+	private int[] sortedBets, involvedBets;
+	
 	/**
 	 * Creates a Pot object, used for keeping track of the pot for a specific hand.
-	 * @param bots : integer array of bot IDs that play in the current hand
+	 * @param bots : the bots that play in the current hand, in the order of their seats
 	 */
 	public Pot(Collection<PokerBot> bots)
 	{
-		botBetSizes = new HashMap<PokerBot, Integer>();
-		Iterator<PokerBot> botIterator = bots.iterator();
-		while(botIterator.hasNext())
-			botBetSizes.put(botIterator.next(), 0);
-		
+		seats = bots.toArray(new PokerBot[bots.size()]);
+		if(seats.length > 64)
+			throw new IllegalArgumentException("A pot supports at most 64 seats");
+		botBetSizes = new int[seats.length];
+		sortedBets = new int[seats.length];
+		involvedBets = new int[seats.length];
 		totalPot = 0;
 	}
 	
@@ -36,8 +43,39 @@ public class Pot
 	 */
 	public void addBet(PokerBot bot, int size)
 	{
-		botBetSizes.put(bot, botBetSizes.get(bot) + size);
+		addBet(seatOf(bot), size);
+	}
+	
+	
+	/**
+	 * Stores the bet of the bot on the given seat.
+	 */
+	public void addBet(int seat, int size)
+	{
+		botBetSizes[seat] += size;
 		totalPot += size;
+		cachedPots = null;
+	}
+	
+	
+	/**
+	 * Returns the total amount the bot on the given seat put in the pot.
+	 */
+	public int getBetSize(int seat)
+	{
+		return botBetSizes[seat];
+	}
+	
+	
+	/**
+	 * Returns the seat of the given bot.
+	 */
+	private int seatOf(PokerBot bot)
+	{
+		for(int seat = 0; seat < seats.length; seat++)
+			if(seats[seat] == bot)
+				return seat;
+		throw new IllegalArgumentException("The given bot is not part of this pot!");
 	}
 	
 	
@@ -74,7 +112,7 @@ public class Pot
 		// Calculate with the involved bots how much each bot put in the main pot and how much per side pot
 		ArrayList<Integer> involvedBotBets = new ArrayList<Integer>();
 		for(Entry<PokerBot, Integer> entry : botHandStrengths.entrySet())
-			involvedBotBets.add(botBetSizes.get(entry.getKey()));
+			involvedBotBets.add(botBetSizes[seatOf(entry.getKey())]);
 		Collections.sort(involvedBotBets);
 		ArrayList<Integer> potsAmountPerBot = new ArrayList<Integer>();
 		int previousAmount = 0;
@@ -118,7 +156,7 @@ public class Pot
 				int currentSumHandledPots = sumHandledPots;
 				PokerBot currentBot = currentBestBots.get(i);
 				botHandStrengths.remove(currentBot);
-				while(botBetSizes.get(currentBot) > currentSumHandledPots)
+				while(botBetSizes[seatOf(currentBot)] > currentSumHandledPots)
 				{
 					ArrayList<PokerBot> currentPotWinners = new ArrayList<PokerBot>();
 					if(currentPotIndex <= winnerPerPot.size() - 1)
@@ -229,32 +267,86 @@ public class Pot
 	
 	/**
 	 * Returns the size of the main pot and possible side pots, given the bots that are still involved in the hand.
+	 * The given list is not changed.
 	 * @param involvedBots : the bots that are still in the hand
 	 */
 	public ArrayList<Integer> getPots(ArrayList<PokerBot> involvedBots)
 	{
-		ArrayList<Integer> pots = new ArrayList<Integer>();
-		Map<PokerBot, Integer> tempBotBetSizes = new HashMap<PokerBot, Integer>(botBetSizes);
-		while(involvedBots.size() > 0)
+		boolean[] involvedSeats = new boolean[seats.length];
+		for(PokerBot bot : involvedBots)
+			involvedSeats[seatOf(bot)] = true;
+		int[] pots = getPots(involvedSeats);
+		ArrayList<Integer> potList = new ArrayList<Integer>(pots.length);
+		for(int potSize : pots)
+			potList.add(potSize);
+		return potList;
+	}
+	
+	
+	/**
+	 * Returns the size of the main pot and possible side pots, given the seats that are still involved in the hand.
+	 * There is a pot for each distinct bet size of the involved bots, holding the chips of all bots between the
+	 * previous bet size and that one; chips of folded bots above the highest involved bet are in no pot. The returned
+	 * array is cached until the next bet and must not be changed.
+	 * @param involvedSeats : per seat, whether the bot is still in the hand
+	 */
+	public int[] getPots(boolean[] involvedSeats)
+	{
+		long involvedMask = 0;
+		for(int seat = 0; seat < seats.length; seat++)
+			if(involvedSeats[seat])
+				involvedMask |= 1l << seat;
+		if(cachedPots != null && cachedInvolvedSeats == involvedMask)
+			return cachedPots;
+		
+		// sort the bets of all bots and of the involved bots
+		int involvedCount = 0;
+		for(int seat = 0; seat < seats.length; seat++)
 		{
-			int lowestBet = Integer.MAX_VALUE;
-			int currentPotSize = 0;
-			for(int i = 0; i < involvedBots.size(); i++)
-				lowestBet = Math.min(tempBotBetSizes.get(involvedBots.get(i)), lowestBet);
-			
-			for(Entry<PokerBot, Integer> entry : tempBotBetSizes.entrySet())
-			{
-			    PokerBot key = entry.getKey();
-			    int value = entry.getValue();
-			    int adjustment = Math.min(value, lowestBet);
-			    currentPotSize += adjustment;
-				tempBotBetSizes.put(key, value - adjustment);
-				if(value == adjustment)
-					involvedBots.remove(key);				
-			}
-			
-			pots.add(currentPotSize);
+			sortedBets[seat] = botBetSizes[seat];
+			if(involvedSeats[seat])
+				involvedBets[involvedCount++] = botBetSizes[seat];
+		}
+		insertionSort(sortedBets, seats.length);
+		insertionSort(involvedBets, involvedCount);
+		
+		int potCount = 0;
+		for(int i = 0; i < involvedCount; i++)
+			if(i == 0 || involvedBets[i] != involvedBets[i - 1])
+				potCount++;
+		int[] pots = new int[potCount];
+		
+		// Walk up the distinct involved bet sizes. A pot holds the part of every bet between the previous size and
+		// this one: the whole remainder of the bets below this size, and the step for all bets at or above it.
+		int potIndex = 0, next = 0, previousLevel = 0;
+		for(int i = 0; i < involvedCount; i++)
+		{
+			int level = involvedBets[i];
+			if(i > 0 && level == involvedBets[i - 1])
+				continue;
+			int potSize = 0;
+			for(; next < seats.length && sortedBets[next] < level; next++)
+				potSize += sortedBets[next] - previousLevel;
+			potSize += (seats.length - next) * (level - previousLevel);
+			pots[potIndex++] = potSize;
+			previousLevel = level;
 		}
+		
+		cachedPots = pots;
+		cachedInvolvedSeats = involvedMask;
 		return pots;
 	}
+	
+	
+	private static void insertionSort(int[] values, int count)
+	{
+		for(int i = 1; i < count; i++)
+		{
+			int value = values[i];
+			int j = i - 1;
+			for(; j >= 0 && values[j] > value; j--)
+				values[j + 1] = values[j];
+			values[j + 1] = value;
+		}
+	}
 }
@@ -0,0 +1,79 @@
+package nl.starapple.poker;
+import java.util.Random;
+
+/**
+ * A fast random generator with the xoroshiro128++ algorithm, usable wherever a {@link Random} is expected. It has a
+ * period of 2^128 - 1 and passes the usual statistical test suites, and its state is seeded from a single long with
+ * splitmix64, so equal seeds give equal sequences.
+ * <p>
+ * Unlike Random, an instance is not thread-safe; use one per thread. It is not suited for cryptographic purposes; use
+ * a SecureRandom for decks that must not be predictable.
+ */
+public class XoroshiroRandom extends Random
+{
+	private static final long serialVersionUID = 1L;
+	
+	// no initializers: the constructor of Random seeds the state through setSeed before they would run
+	private long state0, state1;
+	
+	
+	/**
+	 * Creates a generator with a seed that differs per call.
+	 */
+	public XoroshiroRandom()
+	{
+		super();
+	}
+	
+	
+	/**
+	 * Creates a generator with the given seed.
+	 */
+	public XoroshiroRandom(long seed)
+	{
+		super(seed);
+	}
+	
+	
+	/**
+	 * Sets the state of this generator from the given seed.
+	 */
+	@Override
+	public synchronized void setSeed(long seed)
+	{
+		super.setSeed(seed);	// resets the cached gaussian
+		long x = seed;
+		state0 = splitMix(x += 0x9E3779B97F4A7C15l);
+		state1 = splitMix(x += 0x9E3779B97F4A7C15l);
+		if((state0 | state1) == 0)
+			state0 = 1;
+	}
+	
+	
+	@Override
+	public long nextLong()
+	{
+		long s0 = state0;
+		long s1 = state1;
+		long result = Long.rotateLeft(s0 + s1, 17) + s0;
+		s1 ^= s0;
+		state0 = Long.rotateLeft(s0, 49) ^ s1 ^ (s1 << 21);
+		state1 = Long.rotateLeft(s1, 28);
+		return result;
+	}
+	
+	
+	@Override
+	protected int next(int bits)
+	{
+		return (int) (nextLong() >>> (64 - bits));
+	}
+	
+	
+	private static long splitMix(long z)
+	{
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9l;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBl;
+		return z ^ (z >>> 31);
+	}
+}
@@ -2,12 +2,16 @@ package nl.starapple.starterbot;
 
 import nl.starapple.poker.Card;
 import nl.starapple.poker.Hand;
+import nl.starapple.eval.IncrementalEval;
 import nl.starapple.poker.PokerMove;
 
 import com.stevebrecher.HandEval;
 
 public class BotStarter implements Bot {
 	
+	private final IncrementalEval flopEval = new IncrementalEval();
+	private long flopCode = 0;	// the hole cards and flop flopEval is set to, 0 for none
+	
 	public HandEval.HandCategory rankToCategory(int rank) {
 		return HandEval.HandCategory.values()[rank >> HandEval.VALUE_SHIFT];
 	}
@@ -18,15 +22,20 @@ public class BotStarter implements Bot {
 					? HandEval.HandCategory.PAIR
 					: HandEval.HandCategory.NO_PAIR;
 		}
-		long handCode = hand.getCard1().getNumber() + hand.getCard2().getNumber();
-		for( Card card : table ) { handCode += card.getNumber(); }
+		// the flop is evaluated once per hand, the turn and river are added to it
+		long holeCode = hand.getCard1().getNumber() | hand.getCard2().getNumber();
+		long flop = table[0].getNumber() | table[1].getNumber() | table[2].getNumber();
+		if( (holeCode | flop) != flopCode ) {
+			flopEval.setFlop(holeCode, flop);
+			flopCode = holeCode | flop;
+		}
 		if( table.length == 3 ) {
-			return rankToCategory(HandEval.hand5Eval(handCode));
+			return rankToCategory(flopEval.getValue());
 		}
 		if( table.length == 4 ) {
-			return rankToCategory(HandEval.hand6Eval(handCode));
+			return rankToCategory(flopEval.evalWith(table[3].getNumber()));
 		}
-		return rankToCategory(HandEval.hand7Eval(handCode));
+		return rankToCategory(flopEval.evalWith(table[3].getNumber(), table[4].getNumber()));
 	}
 
 	@Override
@@ -29,6 +29,11 @@ public class Parser {
 			} else if( parts.length == 3 && parts[0].equals("Match") ) {
 				// update PokerState
 				currentState.updateMatch(parts[1], parts[2]);
+			} else if( parts.length == 3 && parts[0].equals("Settings") && parts[1].equals("newMatch") ) {
+				// the engine reuses this process for another match: forget the last one and confirm
+				currentState = new PokerState();
+				System.out.printf("ready %s\n", parts[2]);
+				System.out.flush();
 			} else if( parts.length == 3 && parts[0].equals("Settings") ) {
 				// update settings
 				currentState.updateSetting(parts[1], parts[2]);
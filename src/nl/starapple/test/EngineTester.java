@@ -1,6 +1,9 @@
 package nl.starapple.test;
 
 import nl.starapple.poker.*;
+import nl.starapple.history.BinaryHistorySink;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 
@@ -13,8 +16,28 @@ public class EngineTester {
 		Collection<PokerBot> bots = new ArrayList<PokerBot>();
 		bots.add(pbot1);
 		bots.add(pbot2);
-		MatchPlayer engine = new MatchPlayer(bots, "NLH", true);
+		// an optional seed makes the cards of the match reproducible
+		MatchPlayer engine = args.length > 0
+				? new MatchPlayer(bots, "NLH", true, new XoroshiroRandom(Long.parseLong(args[0])))
+				: new MatchPlayer(bots, "NLH", true);
+		// an optional file name writes the hand histories to that file in the binary format instead
+		BinaryHistorySink binarySink = null;
+		if(args.length > 1)
+		{
+			try
+			{
+				binarySink = new BinaryHistorySink(new FileOutputStream(args[1]));
+				engine.setHistorySink(binarySink);
+			}
+			catch(IOException e)
+			{
+				e.printStackTrace();
+				return;
+			}
+		}
 		engine.runMatch();
+		if(binarySink != null)
+			binarySink.close();
 		
 		
 		/* //Testing for method getPots() from class Pot
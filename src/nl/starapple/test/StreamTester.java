@@ -0,0 +1,106 @@
+package nl.starapple.test;
+
+import nl.starapple.io.IOHandler;
+import nl.starapple.io.InStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+
+/**
+ * Checks that the memory of a bot process stays flat however much it writes: a bot that logs many lines to its error
+ * stream and one that writes a very long line. The bot is this class itself, started in a child JVM, so the path of
+ * the JVM and the class path must not contain spaces.
+ * Usage: StreamTester [lines per round]
+ */
+public class StreamTester {
+
+	private static final int ROUNDS = 4;
+	private static final long MAX_GROWTH = 8 << 20;
+
+	public static void main(String[] args) throws IOException, InterruptedException
+	{
+		if(args.length > 0 && args[0].equals("child"))
+		{
+			child();
+			return;
+		}
+		int lines = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+		String command = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java -cp "
+				+ System.getProperty("java.class.path") + " " + StreamTester.class.getName() + " child";
+		IOHandler handler = new IOHandler(command, 1024, null);
+
+		long[] used = new long[ROUNDS];
+		for(int round = 0; round < ROUNDS; round++)
+		{
+			handler.writeLine("err " + lines);
+			if(!"done".equals(handler.readLine(60000)))
+			{
+				System.err.println("The bot did not finish round " + round);
+				handler.stop();
+				return;
+			}
+			Thread.sleep(500);	// the error stream is read on its own thread
+			used[round] = usedMemory();
+			System.out.printf("round %d: %d lines to stderr, %d lines queued, %d KB used%n", round, lines,
+					handler.getQueuedLines(), used[round] >> 10);
+		}
+		long growth = used[ROUNDS - 1] - used[0];
+		System.out.println(growth < MAX_GROWTH ? "stderr: flat" : "stderr: GROWING by " + (growth >> 10) + " KB");
+
+		int length = 4 * InStream.MAX_LINE_LENGTH;
+		handler.writeLine("long " + length);
+		String line = handler.readLine(60000);
+		handler.readLine(60000);
+		int kept = line == null ? -1 : line.length();
+		System.out.printf("long line: %d characters written, %d kept: %s%n", length, kept,
+				kept == InStream.MAX_LINE_LENGTH ? "bounded" : "NOT BOUNDED");
+		handler.stop();
+	}
+
+	private static long usedMemory() throws InterruptedException
+	{
+		Runtime runtime = Runtime.getRuntime();
+		for(int i = 0; i < 3; i++)
+		{
+			System.gc();
+			Thread.sleep(50);
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	/**
+	 * The bot: "err N" writes N lines to the error stream, "long N" writes a line of N characters. Both are followed
+	 * by a "done" line.
+	 */
+	private static void child() throws IOException
+	{
+		BufferedReader in = new BufferedReader(new InputStreamReader(System.in));
+		PrintStream err = new PrintStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.err), 1 << 16));
+		String line;
+		while((line = in.readLine()) != null)
+		{
+			String[] parts = line.split(" ");
+			int count = Integer.parseInt(parts[1]);
+			if(parts[0].equals("err"))
+			{
+				for(int i = 0; i < count; i++)
+					err.println("debug line " + i + " of a chatty bot");
+				err.flush();
+			}
+			else
+			{
+				StringBuilder str = new StringBuilder(count);
+				for(int i = 0; i < count; i++)
+					str.append('x');
+				System.out.println(str);
+			}
+			System.out.println("done");
+			System.out.flush();
+		}
+	}
+}
@@ -0,0 +1,87 @@
+package nl.starapple.test;
+
+import nl.starapple.io.BotProcessPool;
+import nl.starapple.poker.Robot;
+import nl.starapple.tournament.*;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Plays a round robin between the test bots on all processors and prints the standings.
+ * Usage: TournamentTester [matches per pairing] [seed] [directory for the binary hand histories or "-"]
+ * [hands per duplicate match or "-"] [command of a bot process that joins as "Process"]
+ */
+public class TournamentTester {
+
+	public static void main(String[] args) throws InterruptedException
+	{
+		int matchesPerPairing = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+		long seed = args.length > 1 ? Long.parseLong(args[1]) : System.nanoTime();
+		MatchSinkFactory sinks = MatchRunner.DISCARD;
+		if(args.length > 2 && !args[2].equals("-"))
+		{
+			File directory = new File(args[2]);
+			directory.mkdirs();
+			sinks = MatchRunner.binaryFiles(directory);
+		}
+		
+		List<BotFactory> entrants = new ArrayList<BotFactory>();
+		Collections.addAll(entrants,
+			new BotFactory() {
+				public String getName() { return "CheckCaller"; }
+				public Robot createRobot() { return new TestBotCheckCaller(); }
+				public void releaseRobot(Robot robot) {}
+			},
+			new BotFactory() {
+				public String getName() { return "CheckFolder"; }
+				public Robot createRobot() { return new TestBotCheckFolder(); }
+				public void releaseRobot(Robot robot) {}
+			},
+			new BotFactory() {
+				public String getName() { return "Raiser"; }
+				public Robot createRobot() { return new TestBotRaiser(); }
+				public void releaseRobot(Robot robot) {}
+			},
+			new BotFactory() {
+				public String getName() { return "Random"; }
+				public Robot createRobot() { return new TestBotRandom(); }
+				public void releaseRobot(Robot robot) {}
+			}
+		);
+		// the processes of a bot process are reused between its matches
+		BotProcessPool pool = null;
+		if(args.length > 4)
+		{
+			pool = new BotProcessPool();
+			entrants.add(new ProcessBotFactory("Process", args[4], pool));
+		}
+		
+		// every pair plays from both seats
+		List<Pairing> pairings = new ArrayList<Pairing>();
+		for(int i = 0; i < entrants.size(); i++)
+			for(int j = 0; j < entrants.size(); j++)
+				if(i != j)
+					for(int k = 0; k < matchesPerPairing; k++)
+						pairings.add(new Pairing(entrants.get(i), entrants.get(j), seed + pairings.size()));
+		
+		MatchRunner runner = new MatchRunner(Runtime.getRuntime().availableProcessors(), sinks);
+		// the test bots run in-process and answer at once, so their moves need no threads of their own; the moves
+		// are still timed for the latency report. A bot process is not trusted, so then every move gets a thread.
+		runner.setDirectMoves(pool == null, true);
+		long start = System.nanoTime();
+		// with a number of hands, every pairing is played in duplicate instead
+		TournamentSummary summary = args.length > 3 && !args[3].equals("-")
+				? runner.runDuplicate(pairings, Integer.parseInt(args[3]))
+				: runner.run(pairings);
+		System.out.println(summary);
+		System.out.print(summary.getLatencyReport(500));
+		System.out.printf("%.1f seconds%n", (System.nanoTime() - start) / 1e9);
+		if(pool != null)
+		{
+			System.out.printf("%d bot processes started, %d reused%n", pool.getStarted(), pool.getReused());
+			pool.close();
+		}
+	}
+}
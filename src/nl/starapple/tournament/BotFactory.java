@@ -0,0 +1,26 @@
+package nl.starapple.tournament;
+
+import nl.starapple.poker.Robot;
+
+/**
+ * Creates the bots of one entrant of a tournament. Every match gets bots of its own, so a factory must return a robot
+ * that no other match uses for each call and may be called from several threads at once. Each robot is handed back
+ * with {@link #releaseRobot(Robot)} when its match is over, which lets a factory stop or reuse it.
+ */
+public interface BotFactory
+{
+	/**
+	 * Returns the name under which the bots of this factory play and are ranked.
+	 */
+	public String getName();
+
+	/**
+	 * Returns a new bot for one match.
+	 */
+	public Robot createRobot();
+
+	/**
+	 * Takes back a bot of this factory after its match.
+	 */
+	public void releaseRobot(Robot robot);
+}
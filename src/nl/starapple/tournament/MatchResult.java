@@ -0,0 +1,93 @@
+package nl.starapple.tournament;
+
+import nl.starapple.poker.BetRound;
+import nl.starapple.poker.LatencyHistogram;
+
+/**
+ * The outcome of one match played by a {@link MatchRunner}.
+ */
+public class MatchResult
+{
+	private final int matchNumber;
+	private final Pairing pairing;
+	private final int[] points;
+	private final int[] chips;
+	private final int hands;
+	private final long nanos;
+	private final LatencyHistogram[][] latencies;
+
+	/**
+	 * @param matchNumber : the position of the match in the list of pairings
+	 * @param pairing : the pairing that was played
+	 * @param points : the points of both seats, as returned by MatchPlayer.runMatch
+	 * @param chips : the chips both seats won or lost
+	 * @param hands : the number of hands played
+	 * @param nanos : the wall clock time the match took
+	 * @param latencies : the response times of both seats per bet round
+	 */
+	public MatchResult(int matchNumber, Pairing pairing, int[] points, int[] chips, int hands, long nanos,
+			LatencyHistogram[][] latencies)
+	{
+		this.matchNumber = matchNumber;
+		this.pairing = pairing;
+		this.points = points.clone();
+		this.chips = chips.clone();
+		this.hands = hands;
+		this.nanos = nanos;
+		this.latencies = latencies;
+	}
+
+	public int getMatchNumber()
+	{
+		return matchNumber;
+	}
+
+	public Pairing getPairing()
+	{
+		return pairing;
+	}
+
+	/**
+	 * Returns the points of a seat: 2 for a win, 1 for a draw and 0 for a loss.
+	 * @param seat : 0 for the first bot of the pairing, 1 for the second
+	 */
+	public int getPoints(int seat)
+	{
+		return points[seat];
+	}
+
+	/**
+	 * Returns the chips a seat won or lost.
+	 * @param seat : 0 for the first bot of the pairing, 1 for the second
+	 */
+	public int getChips(int seat)
+	{
+		return chips[seat];
+	}
+
+	public int getHands()
+	{
+		return hands;
+	}
+
+	public long getNanos()
+	{
+		return nanos;
+	}
+
+	/**
+	 * Returns the response times of a seat in one bet round.
+	 * @param seat : 0 for the first bot of the pairing, 1 for the second
+	 * @param betRound : the bet round
+	 */
+	public LatencyHistogram getLatencies(int seat, BetRound betRound)
+	{
+		return latencies[seat][betRound.ordinal()];
+	}
+
+	public String toString()
+	{
+		return "Match " + matchNumber + ": " + pairing.getBot1().getName() + " " + points[0] + " - " + points[1] + " "
+				+ pairing.getBot2().getName() + " in " + hands + " hands, chips " + chips[0] + " - " + chips[1];
+	}
+}
@@ -0,0 +1,325 @@
+package nl.starapple.tournament;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import nl.starapple.history.AsyncHistorySink;
+import nl.starapple.history.BinaryHistorySink;
+import nl.starapple.history.HandHistorySink;
+import nl.starapple.history.HandStore;
+import nl.starapple.poker.BetRound;
+import nl.starapple.poker.LatencyHistogram;
+import nl.starapple.poker.MatchPlayer;
+import nl.starapple.poker.PokerBot;
+import nl.starapple.poker.Robot;
+import nl.starapple.poker.XoroshiroRandom;
+
+/**
+ * Plays many matches at the same time on a fixed pool of threads, by default one per available processor. Every match
+ * gets bots of its own from the factories of its pairing, its own random generator seeded by the pairing and its own hand
+ * history sink. The results are gathered in a {@link TournamentSummary}. Pairings can also be played in duplicate,
+ * which separates bots in far fewer hands; see {@link #runDuplicate(List, int)}.
+ */
+public class MatchRunner
+{
+	/** Sink factory that drops all hand histories. */
+	public static final MatchSinkFactory DISCARD = new MatchSinkFactory()
+	{
+		@Override
+		public HandHistorySink openSink(int matchNumber, Pairing pairing)
+		{
+			return new HandHistorySink()
+			{
+				public void writeHand(CharSequence hand) {}
+				public void flush() {}
+				public void close() {}
+			};
+		}
+	};
+
+	private final int threads;
+	private final MatchSinkFactory sinkFactory;
+	private boolean directMoves;
+	private boolean timedMoves;
+
+
+	/**
+	 * Creates a runner with one thread per available processor that drops the hand histories.
+	 */
+	public MatchRunner()
+	{
+		this(Runtime.getRuntime().availableProcessors(), DISCARD);
+	}
+
+
+	/**
+	 * @param threads : the number of matches that are played at the same time
+	 * @param sinkFactory : creates the hand history sink of each match
+	 */
+	public MatchRunner(int threads, MatchSinkFactory sinkFactory)
+	{
+		if(threads < 1)
+			throw new IllegalArgumentException("A runner needs at least one thread");
+		this.threads = threads;
+		this.sinkFactory = sinkFactory;
+	}
+
+
+	/**
+	 * Lets the matches ask the moves of the bots directly on their own thread; see
+	 * {@link MatchPlayer#setDirectMoves(boolean, boolean)}. Only for trusted in-process bots.
+	 * @param direct : whether moves are asked directly
+	 * @param timed : whether direct moves are timed against the time bank
+	 */
+	public void setDirectMoves(boolean direct, boolean timed)
+	{
+		directMoves = direct;
+		timedMoves = timed;
+	}
+
+
+	/**
+	 * Returns a sink factory that writes the text history of each match to its own file "match-N.txt" in a directory.
+	 */
+	public static MatchSinkFactory textFiles(final File directory)
+	{
+		return new MatchSinkFactory()
+		{
+			@Override
+			public HandHistorySink openSink(int matchNumber, Pairing pairing) throws IOException
+			{
+				return new AsyncHistorySink(new FileOutputStream(new File(directory, "match-" + matchNumber + ".txt")), true);
+			}
+		};
+	}
+
+
+	/**
+	 * Returns a sink factory that writes the binary history of each match to its own file "match-N.bin" in a directory.
+	 */
+	public static MatchSinkFactory binaryFiles(final File directory)
+	{
+		return new MatchSinkFactory()
+		{
+			@Override
+			public HandHistorySink openSink(int matchNumber, Pairing pairing) throws IOException
+			{
+				return new BinaryHistorySink(new FileOutputStream(new File(directory, "match-" + matchNumber + ".bin")));
+			}
+		};
+	}
+
+
+	/**
+	 * Returns a sink factory that stores all matches in a hand store, each under a match id of its own.
+	 */
+	public static MatchSinkFactory store(final HandStore store)
+	{
+		return new MatchSinkFactory()
+		{
+			@Override
+			public HandHistorySink openSink(int matchNumber, Pairing pairing)
+			{
+				return store.openMatch();
+			}
+		};
+	}
+
+
+	/**
+	 * Plays all pairings as tournament matches and waits until they are finished. A match that fails is reported on
+	 * the error channel and counted in the summary; the other matches go on.
+	 * @param pairings : the matches to play
+	 * @return the results of the matches
+	 * @throws InterruptedException if the calling thread is interrupted; the matches that did not start are dropped
+	 */
+	public TournamentSummary run(List<Pairing> pairings) throws InterruptedException
+	{
+		return run(pairings, 0);
+	}
+
+
+	/**
+	 * Plays all pairings in duplicate and waits until they are finished. Each pairing is played twice with fixed blinds
+	 * and stacks that are reset every hand: once as given and once with the seats swapped, with the same cards in
+	 * every hand. Each bot thus plays both sides of every deal and the card luck cancels out when the chips of the two
+	 * matches are netted. The summary holds one result per pairing, match numbers 2i and 2i + 1 are the two matches
+	 * of pairing i for the sink factory.
+	 * @param pairings : the pairings to play
+	 * @param handsPerMatch : the number of hands of each of the two matches
+	 * @return the netted results of the pairings
+	 * @throws InterruptedException if the calling thread is interrupted; the pairings that did not start are dropped
+	 */
+	public TournamentSummary runDuplicate(List<Pairing> pairings, int handsPerMatch) throws InterruptedException
+	{
+		if(handsPerMatch < 1)
+			throw new IllegalArgumentException("A duplicate match needs at least one hand");
+		return run(pairings, handsPerMatch);
+	}
+
+
+	/**
+	 * Plays the pairings on the pool, as tournament matches when the hand limit is 0 and in duplicate otherwise.
+	 */
+	private TournamentSummary run(List<Pairing> pairings, final int handLimit) throws InterruptedException
+	{
+		final TournamentSummary summary = new TournamentSummary();
+		final AtomicInteger threadNumber = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactory()
+		{
+			@Override
+			public Thread newThread(Runnable task)
+			{
+				Thread thread = new Thread(task, "match-" + threadNumber.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		try
+		{
+			for(int i = 0; i < pairings.size(); i++)
+			{
+				final int matchNumber = i;
+				final Pairing pairing = pairings.get(i);
+				executor.execute(new Runnable()
+				{
+					@Override
+					public void run()
+					{
+						try
+						{
+							if(handLimit == 0)
+								summary.add(play(matchNumber, pairing, 0));
+							else
+								summary.add(playDuplicate(matchNumber, pairing, handLimit));
+						}
+						catch(Throwable e)
+						{
+							System.err.println("Match " + matchNumber + " (" + pairing + ") failed");
+							e.printStackTrace();
+							summary.addFailure();
+						}
+					}
+				});
+			}
+			executor.shutdown();
+			while(!executor.awaitTermination(1, TimeUnit.SECONDS)) {}
+		}
+		finally
+		{
+			executor.shutdownNow();
+		}
+		return summary;
+	}
+
+
+	/**
+	 * Plays a pairing and its mirror on the calling thread and nets their chips into one result.
+	 */
+	private MatchResult playDuplicate(int number, Pairing pairing, int hands) throws IOException
+	{
+		MatchResult first = play(2 * number, pairing, hands);
+		MatchResult second = play(2 * number + 1, new Pairing(pairing.getBot2(), pairing.getBot1(), pairing.getSeed()),
+				hands);
+		int[] chips = {first.getChips(0) + second.getChips(1), first.getChips(1) + second.getChips(0)};
+		LatencyHistogram[][] latencies = new LatencyHistogram[2][BetRound.values().length];
+		for(BetRound round : BetRound.values())
+			for(int seat = 0; seat < 2; seat++)
+			{
+				LatencyHistogram merged = new LatencyHistogram();
+				merged.add(first.getLatencies(seat, round));
+				merged.add(second.getLatencies(1 - seat, round));
+				latencies[seat][round.ordinal()] = merged;
+			}
+		return new MatchResult(number, pairing, points(chips), chips, first.getHands() + second.getHands(),
+				first.getNanos() + second.getNanos(), latencies);
+	}
+
+
+	/**
+	 * Plays one match on the calling thread: a tournament match when the hand limit is 0, otherwise a match with
+	 * fixed blinds, seeded hands and the given number of hands. The bots are handed back to their factories
+	 * afterwards.
+	 */
+	private MatchResult play(int matchNumber, Pairing pairing, int handLimit) throws IOException
+	{
+		String name1 = pairing.getBot1().getName();
+		String name2 = pairing.getBot2().getName();
+		if(name1.equals(name2))
+		{
+			// the hand history tells the seats apart by name
+			name1 += "_1";
+			name2 += "_2";
+		}
+		Robot robot1 = pairing.getBot1().createRobot();
+		Robot robot2 = null;
+		try
+		{
+			robot2 = pairing.getBot2().createRobot();
+			return play(matchNumber, pairing, handLimit, new PokerBot(robot1, name1), new PokerBot(robot2, name2));
+		}
+		finally
+		{
+			pairing.getBot1().releaseRobot(robot1);
+			if(robot2 != null)
+				pairing.getBot2().releaseRobot(robot2);
+		}
+	}
+
+
+	private MatchResult play(int matchNumber, Pairing pairing, int handLimit, PokerBot bot1, PokerBot bot2)
+			throws IOException
+	{
+		Collection<PokerBot> bots = new ArrayList<PokerBot>(2);
+		bots.add(bot1);
+		bots.add(bot2);
+
+		long start = System.nanoTime();
+		MatchPlayer match = new MatchPlayer(bots, "NLH", handLimit == 0, new XoroshiroRandom(pairing.getSeed()));
+		match.setDirectMoves(directMoves, timedMoves);
+		if(handLimit > 0)
+		{
+			match.setHandSeed(pairing.getSeed());
+			match.setHandLimit(handLimit);
+		}
+		HandHistorySink sink = sinkFactory.openSink(matchNumber, pairing);
+		int[] points;
+		try
+		{
+			match.setHistorySink(sink);
+			points = match.runMatch();
+		}
+		finally
+		{
+			sink.close();
+		}
+		int[] chips = match.getChipResults();
+		if(handLimit > 0)
+			points = points(chips);	// runMatch only compares the stacks of the last hand
+		LatencyHistogram[][] latencies = new LatencyHistogram[2][BetRound.values().length];
+		for(BetRound round : BetRound.values())
+			for(int seat = 0; seat < 2; seat++)
+				latencies[seat][round.ordinal()] = match.getLatencies(seat, round);
+		return new MatchResult(matchNumber, pairing, points, chips, match.getHandNumber(), System.nanoTime() - start,
+				latencies);
+	}
+
+
+	/**
+	 * Returns the points of both seats for the given chip results: 2 for more chips, 1 for equal and 0 for fewer.
+	 */
+	private static int[] points(int[] chips)
+	{
+		return new int[] {chips[0] > chips[1] ? 2 : chips[0] == chips[1] ? 1 : 0,
+						  chips[1] > chips[0] ? 2 : chips[0] == chips[1] ? 1 : 0};
+	}
+}
@@ -0,0 +1,19 @@
+package nl.starapple.tournament;
+
+import java.io.IOException;
+
+import nl.starapple.history.HandHistorySink;
+
+/**
+ * Creates the hand history sink of each match of a {@link MatchRunner}. Called from the threads of the runner; the
+ * runner closes every sink when its match is over.
+ */
+public interface MatchSinkFactory
+{
+	/**
+	 * Returns the sink for the hands of one match.
+	 * @param matchNumber : the number of the match, its position in the list of pairings
+	 * @param pairing : the pairing of the match
+	 */
+	public HandHistorySink openSink(int matchNumber, Pairing pairing) throws IOException;
+}
@@ -0,0 +1,43 @@
+package nl.starapple.tournament;
+
+/**
+ * A match to play: two entrants and the seed of the random generator that shuffles the cards of the match.
+ */
+public class Pairing
+{
+	private final BotFactory bot1;
+	private final BotFactory bot2;
+	private final long seed;
+
+	/**
+	 * @param bot1 : the entrant in the first seat
+	 * @param bot2 : the entrant in the second seat
+	 * @param seed : the seed for the cards of the match
+	 */
+	public Pairing(BotFactory bot1, BotFactory bot2, long seed)
+	{
+		this.bot1 = bot1;
+		this.bot2 = bot2;
+		this.seed = seed;
+	}
+
+	public BotFactory getBot1()
+	{
+		return bot1;
+	}
+
+	public BotFactory getBot2()
+	{
+		return bot2;
+	}
+
+	public long getSeed()
+	{
+		return seed;
+	}
+
+	public String toString()
+	{
+		return bot1.getName() + " vs " + bot2.getName() + " (seed " + seed + ")";
+	}
+}
@@ -0,0 +1,65 @@
+package nl.starapple.tournament;
+
+import java.io.IOException;
+
+import nl.starapple.io.BotProcessPool;
+import nl.starapple.io.IORobot;
+import nl.starapple.poker.Robot;
+
+/**
+ * Creates bots that run as processes started by a command. With a {@link BotProcessPool} the processes are reused
+ * between matches, otherwise every match starts a process and stops it when it is over.
+ */
+public class ProcessBotFactory implements BotFactory
+{
+	private final String name;
+	private final String command;
+	private final BotProcessPool pool;
+
+
+	/**
+	 * @param name : the name under which the bots play
+	 * @param command : the command that starts a bot process
+	 * @param pool : the pool that keeps the processes between matches, or null to start one per match
+	 */
+	public ProcessBotFactory(String name, String command, BotProcessPool pool)
+	{
+		this.name = name;
+		this.command = command;
+		this.pool = pool;
+	}
+
+
+	@Override
+	public String getName()
+	{
+		return name;
+	}
+
+
+	/**
+	 * @throws IllegalStateException if the process cannot be started
+	 */
+	@Override
+	public Robot createRobot()
+	{
+		try
+		{
+			return pool != null ? pool.acquire(command) : new IORobot(command);
+		}
+		catch(IOException e)
+		{
+			throw new IllegalStateException("Cannot start bot " + name + " with \"" + command + "\"", e);
+		}
+	}
+
+
+	@Override
+	public void releaseRobot(Robot robot)
+	{
+		if(pool != null)
+			pool.release((IORobot) robot);
+		else
+			((IORobot) robot).finish();
+	}
+}
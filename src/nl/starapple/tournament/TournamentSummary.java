@@ -0,0 +1,218 @@
+package nl.starapple.tournament;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import nl.starapple.poker.BetRound;
+import nl.starapple.poker.LatencyHistogram;
+
+/**
+ * Standings of the entrants of a tournament, built from the results of its matches. Thread-safe: the threads of a
+ * {@link MatchRunner} add their results as their matches finish.
+ */
+public class TournamentSummary
+{
+	private final Map<String, int[]> standings = new LinkedHashMap<String, int[]>();	// wins, draws, losses, points, chips
+	private final List<MatchResult> results = new ArrayList<MatchResult>();
+	private final Map<String, LatencyHistogram[]> latencies = new LinkedHashMap<String, LatencyHistogram[]>();	// per bet round
+	private int failedMatches;
+	private long totalHands;
+
+	private static final int WINS = 0, DRAWS = 1, LOSSES = 2, POINTS = 3, CHIPS = 4;
+
+
+	/**
+	 * Adds the result of a finished match.
+	 */
+	public synchronized void add(MatchResult result)
+	{
+		results.add(result);
+		totalHands += result.getHands();
+		String[] names = {result.getPairing().getBot1().getName(), result.getPairing().getBot2().getName()};
+		for(int seat = 0; seat < 2; seat++)
+		{
+			int[] standing = standing(names[seat]);
+			int points = result.getPoints(seat);
+			int opponentPoints = result.getPoints(1 - seat);
+			standing[points > opponentPoints ? WINS : points < opponentPoints ? LOSSES : DRAWS]++;
+			standing[POINTS] += points;
+			standing[CHIPS] += result.getChips(seat);
+			LatencyHistogram[] rounds = latencies(names[seat]);
+			for(BetRound round : BetRound.values())
+				rounds[round.ordinal()].add(result.getLatencies(seat, round));
+		}
+	}
+
+
+	/**
+	 * Counts a match that could not be played to the end.
+	 */
+	public synchronized void addFailure()
+	{
+		failedMatches++;
+	}
+
+
+	private int[] standing(String name)
+	{
+		int[] standing = standings.get(name);
+		if(standing == null)
+		{
+			standing = new int[5];
+			standings.put(name, standing);
+		}
+		return standing;
+	}
+
+
+	private LatencyHistogram[] latencies(String name)
+	{
+		LatencyHistogram[] rounds = latencies.get(name);
+		if(rounds == null)
+		{
+			rounds = new LatencyHistogram[BetRound.values().length];
+			for(int i = 0; i < rounds.length; i++)
+				rounds[i] = new LatencyHistogram();
+			latencies.put(name, rounds);
+		}
+		return rounds;
+	}
+
+
+	/**
+	 * Returns the response times of an entrant in one bet round over all finished matches, or null if it played
+	 * none. The histogram is a copy.
+	 */
+	public synchronized LatencyHistogram getLatencies(String name, BetRound betRound)
+	{
+		LatencyHistogram[] rounds = latencies.get(name);
+		if(rounds == null)
+			return null;
+		LatencyHistogram copy = new LatencyHistogram();
+		copy.add(rounds[betRound.ordinal()]);
+		return copy;
+	}
+
+
+	/**
+	 * Returns a table of the response times of every entrant per bet round, with the share of moves that took longer
+	 * than the given time, such as the time per move that is added to the time bank.
+	 * @param thresholdMillis : the time in milliseconds for the last column
+	 */
+	public synchronized String getLatencyReport(long thresholdMillis)
+	{
+		StringBuilder str = new StringBuilder();
+		str.append(String.format("%-20s %-8s %9s %9s %9s %9s %9s %9s %8s%n", "Bot", "Round", "Moves", "Mean ms",
+				"p50 ms", "p90 ms", "p99 ms", "Max ms", ">" + thresholdMillis + "ms"));
+		for(Map.Entry<String, LatencyHistogram[]> entry : latencies.entrySet())
+			for(BetRound round : BetRound.values())
+			{
+				LatencyHistogram h = entry.getValue()[round.ordinal()];
+				if(h.getCount() == 0)
+					continue;
+				str.append(String.format("%-20s %-8s %9d %9.3f %9.3f %9.3f %9.3f %9.3f %7.2f%%%n", entry.getKey(), round,
+						h.getCount(), h.getMeanNanos() / 1e6, h.getPercentileNanos(50) / 1e6,
+						h.getPercentileNanos(90) / 1e6, h.getPercentileNanos(99) / 1e6, h.getMaxNanos() / 1e6,
+						100.0 * h.getCountAbove(thresholdMillis * 1000000l) / h.getCount()));
+			}
+		return str.toString();
+	}
+
+
+	/**
+	 * Returns the results of the finished matches, ordered by match number.
+	 */
+	public synchronized List<MatchResult> getResults()
+	{
+		List<MatchResult> sorted = new ArrayList<MatchResult>(results);
+		Collections.sort(sorted, new Comparator<MatchResult>()
+		{
+			@Override
+			public int compare(MatchResult a, MatchResult b)
+			{
+				return a.getMatchNumber() < b.getMatchNumber() ? -1 : a.getMatchNumber() == b.getMatchNumber() ? 0 : 1;
+			}
+		});
+		return sorted;
+	}
+
+
+	/**
+	 * Returns the total points of an entrant, or 0 if it played no finished match.
+	 */
+	public synchronized int getPoints(String name)
+	{
+		int[] standing = standings.get(name);
+		return standing == null ? 0 : standing[POINTS];
+	}
+
+
+	/**
+	 * Returns the total chips an entrant won or lost, or 0 if it played no finished match.
+	 */
+	public synchronized int getChips(String name)
+	{
+		int[] standing = standings.get(name);
+		return standing == null ? 0 : standing[CHIPS];
+	}
+
+
+	/**
+	 * Returns the number of matches that finished.
+	 */
+	public synchronized int getMatchCount()
+	{
+		return results.size();
+	}
+
+
+	/**
+	 * Returns the number of matches that failed.
+	 */
+	public synchronized int getFailedMatches()
+	{
+		return failedMatches;
+	}
+
+
+	/**
+	 * Returns the number of hands of all finished matches.
+	 */
+	public synchronized long getTotalHands()
+	{
+		return totalHands;
+	}
+
+
+	/**
+	 * Returns a table of the standings, the entrant with the most points first.
+	 */
+	public synchronized String toString()
+	{
+		List<Map.Entry<String, int[]>> entries = new ArrayList<Map.Entry<String, int[]>>(standings.entrySet());
+		Collections.sort(entries, new Comparator<Map.Entry<String, int[]>>()
+		{
+			@Override
+			public int compare(Map.Entry<String, int[]> a, Map.Entry<String, int[]> b)
+			{
+				return b.getValue()[POINTS] - a.getValue()[POINTS];
+			}
+		});
+		StringBuilder str = new StringBuilder();
+		str.append(String.format("%-20s %6s %6s %6s %6s %10s%n", "Bot", "Won", "Drawn", "Lost", "Points", "Chips"));
+		for(Map.Entry<String, int[]> entry : entries)
+		{
+			int[] s = entry.getValue();
+			str.append(String.format("%-20s %6d %6d %6d %6d %10d%n", entry.getKey(), s[WINS], s[DRAWS], s[LOSSES], s[POINTS],
+					s[CHIPS]));
+		}
+		str.append(results.size()).append(" matches, ").append(totalHands).append(" hands");
+		if(failedMatches > 0)
+			str.append(", ").append(failedMatches).append(" failed");
+		return str.toString();
+	}
+}